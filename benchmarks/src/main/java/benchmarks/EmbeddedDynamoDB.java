@@ -0,0 +1,51 @@
+package benchmarks;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import testsupport.DynamoDBLocalServer;
+import v_final.OrderByPoidGeid;
+import v_final.OrderByPoidGk;
+import v_final.Vendor;
+
+/*
+in-memory DynamoDB local (see testsupport.DynamoDBLocalServer, the same as in the tests) with the tables of the given
+entities, generated from their annotations. by default the order and vendor tables.
+
+run the benchmarks from the benchmarks folder, the sqlite libs are copied to `native-libs` there on compile.
+ */
+public class EmbeddedDynamoDB implements AutoCloseable {
+
+    private final DynamoDBLocalServer server;
+    private final DynamoDBMapper mapper;
+
+    public EmbeddedDynamoDB() {
+        this(OrderByPoidGeid.class, OrderByPoidGk.class, Vendor.class);
+    }
+
+    public EmbeddedDynamoDB(Class<?>... entities) {
+
+        server = new DynamoDBLocalServer();
+        for (CreateTableRequest createTableRequest : DynamoDBLocalServer.createTableRequestsOf(entities)) {
+            server.getClient().createTable(createTableRequest);
+        }
+
+        mapper = new DynamoDBMapper(server.getClient(), DynamoDBMapperConfig.builder()
+                .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.EVENTUAL)
+                .build());
+    }
+
+    public AmazonDynamoDB getClient() {
+        return server.getClient();
+    }
+
+    public DynamoDBMapper getMapper() {
+        return mapper;
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.close();
+    }
+}
@@ -0,0 +1,324 @@
+package benchmarks;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import v_final.OrderByPoidGeid;
+import v_final.OrderLayout;
+import v_final.OrderStore;
+import v_final.OrderUpdates;
+import v_final.Vendor;
+import v_final.VendorListenerLogic;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+replays the order and vendor relation traffic of a LoadProfile against the embedded DynamoDB, in order to size the
+listener pools before going live. run from the benchmarks folder (see README), e.g.
+
+  java -cp target/benchmarks.jar benchmarks.LoadGenerator profile=AS01 mode=OPEN speedup=20 threads=8 seconds=60
+
+the operations arrive as a Poisson process (exponentially distributed pauses), at `speedup` times the rates of the
+profile:
+- ORDER_INSERT: both order items in 1 TX (OrderStore)
+- ORDER_STEP: a lifecycle step of a recent order, load by (pOID, gEID) and update of oJV (OrderUpdates)
+- ORDER_REDELIVERY: a recent order inserted again (a redelivered queue message), must fail with a
+  TransactionCanceledException. `redeliveries` is the share of the inserts
+- VENDOR_UPDATE: a relation change of an rps vendor (VendorListenerLogic.update). the message timestamp is jittered by
+  +-1000ms as in VendorTest, so the messages of an rps vendor arrive out of order
+
+modes:
+- OPEN: the arrivals don't depend on the responses, they are queued for the `threads` listeners (like the messages of
+  a queue). the response time is measured from the intended arrival, so the time waiting for a listener is included
+  (no coordinated omission). if the pool is too small, the backlog and the response times grow with the duration.
+- CLOSED: each of the `threads` listeners sends its next operation only after the response and a pause (like a
+  consumer polling). a slow response delays the arrivals behind it, so the response times are corrected by HdrHistogram
+  (recordValueWithExpectedInterval with the mean pause of a listener).
+
+the service time (the operation only, without waiting for a listener) is reported as well. an unexpected exception
+counts as a failure of the operation.
+ */
+public class LoadGenerator {
+
+    public enum Mode {
+        OPEN,
+        CLOSED
+    }
+
+    public enum Operation {
+        ORDER_INSERT,
+        ORDER_STEP,
+        ORDER_REDELIVERY,
+        VENDOR_UPDATE
+    }
+
+    // inserted before the run, so the steps and redeliveries always find a recent order
+    private static final int RECENT_ORDERS = 1000;
+    private static final int RPS_VENDORS = 100;
+    private static final int VENDORS_PER_RPS_VENDOR = 3;
+
+    private final OrderStore orderStore;
+    private final DynamoDBMapper mapper;
+    private final OrderUpdates orderUpdates;
+    private final VendorListenerLogic vendorListenerLogic;
+
+    private final Operation[] operations = Operation.values();
+    // per second, by operation ordinal
+    private final double[] cumulativeRates = new double[operations.length];
+    private final double totalRate;
+
+    private final AtomicReferenceArray<OrderByPoidGeid> recentOrders = new AtomicReferenceArray<>(RECENT_ORDERS);
+    private final AtomicLong nextPlatformOrderId = new AtomicLong();
+
+    // in micros, auto-resizing
+    private final Map<Operation, Histogram> responseTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failures = new EnumMap<>(Operation.class);
+    private long maxBacklog;
+    private long elapsedNanos;
+
+    public LoadGenerator(EmbeddedDynamoDB dynamoDB, LoadProfile profile, double speedup, double redeliveries) {
+
+        mapper = dynamoDB.getMapper();
+        orderStore = new OrderStore(dynamoDB.getClient(), mapper, OrderLayout.TWO_TABLES);
+        orderUpdates = new OrderUpdates(dynamoDB.getClient());
+        vendorListenerLogic = new VendorListenerLogic(dynamoDB.getClient());
+
+        double insertRate = profile.ordersPerSecond() * speedup;
+        Map<Operation, Double> rates = new EnumMap<>(Operation.class);
+        rates.put(Operation.ORDER_INSERT, insertRate);
+        rates.put(Operation.ORDER_STEP, insertRate * LoadProfile.ORDER_STEPS);
+        rates.put(Operation.ORDER_REDELIVERY, insertRate * redeliveries);
+        rates.put(Operation.VENDOR_UPDATE, profile.relationChangesPerSecond() * speedup);
+        double cumulative = 0;
+        for (Operation operation : operations) {
+            cumulative += rates.get(operation);
+            cumulativeRates[operation.ordinal()] = cumulative;
+            responseTimes.put(operation, new ConcurrentHistogram(3));
+            serviceTimes.put(operation, new ConcurrentHistogram(3));
+            failures.put(operation, new LongAdder());
+        }
+        totalRate = cumulative;
+
+        for (int i = 0; i < RECENT_ORDERS; i++) {
+            insertOrder();
+        }
+    }
+
+    public void runOpen(int threads, Duration duration) throws InterruptedException {
+
+        ThreadPoolExecutor listeners = (ThreadPoolExecutor) Executors.newFixedThreadPool(threads);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long intendedStart = start + pauseNanos(random, totalRate);
+        while (intendedStart < end) {
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = nextOperation(random);
+            long arrival = intendedStart;
+            listeners.execute(() -> {
+                long serviceStart = System.nanoTime();
+                execute(operation);
+                long serviceEnd = System.nanoTime();
+                responseTimes.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(serviceEnd - arrival));
+                serviceTimes.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(serviceEnd - serviceStart));
+            });
+            maxBacklog = Math.max(maxBacklog, listeners.getQueue().size());
+            intendedStart += pauseNanos(random, totalRate);
+        }
+
+        listeners.shutdown();
+        listeners.awaitTermination(1, TimeUnit.HOURS);
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    public void runClosed(int threads, Duration duration) throws InterruptedException {
+
+        double ratePerListener = totalRate / threads;
+        long expectedIntervalMicros = (long) (1_000_000 / ratePerListener);
+
+        ExecutorService listeners = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (int i = 0; i < threads; i++) {
+            listeners.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (true) {
+                    LockSupport.parkNanos(pauseNanos(random, ratePerListener));
+                    if (System.nanoTime() >= end) {
+                        return;
+                    }
+                    Operation operation = nextOperation(random);
+                    long serviceStart = System.nanoTime();
+                    execute(operation);
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - serviceStart);
+                    responseTimes.get(operation).recordValueWithExpectedInterval(micros, expectedIntervalMicros);
+                    serviceTimes.get(operation).recordValue(micros);
+                }
+            });
+        }
+
+        listeners.shutdown();
+        listeners.awaitTermination(1, TimeUnit.HOURS);
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    public void printReport() {
+
+        double seconds = elapsedNanos / 1e9;
+        System.out.println();
+        System.out.printf("%-17s %9s %8s %8s | %-45s | %-45s%n", "operation", "count", "per sec", "failures",
+                "response time p50/p90/p99/p99.9/max (ms)", "service time p50/p90/p99/p99.9/max (ms)");
+        for (Operation operation : operations) {
+            Histogram serviceTime = serviceTimes.get(operation);
+            System.out.printf("%-17s %9d %8.1f %8d | %-45s | %-45s%n", operation, serviceTime.getTotalCount(),
+                    serviceTime.getTotalCount() / seconds, failures.get(operation).sum(),
+                    percentiles(responseTimes.get(operation)), percentiles(serviceTime));
+        }
+        if (maxBacklog > 0) {
+            System.out.println("max backlog (operations waiting for a listener): " + maxBacklog);
+        }
+    }
+
+    private static String percentiles(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return "-";
+        }
+        return String.format("%.1f/%.1f/%.1f/%.1f/%.1f",
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private void execute(Operation operation) {
+        try {
+            switch (operation) {
+                case ORDER_INSERT:
+                    insertOrder();
+                    break;
+                case ORDER_STEP:
+                    OrderByPoidGeid recentOrder = recentOrder();
+                    OrderByPoidGeid order = mapper.load(OrderByPoidGeid.class,
+                            OrderByPoidGeid.hashKeyOf(recentOrder.getPlatformOrderId(), recentOrder.getGlobalEntityId()));
+                    orderUpdates.updateOrderJsonVersion(order, UUID.randomUUID().toString());
+                    break;
+                case ORDER_REDELIVERY:
+                    redeliverOrder();
+                    break;
+                case VENDOR_UPDATE:
+                    updateVendors();
+                    break;
+            }
+        } catch (RuntimeException e) {
+            failures.get(operation).increment();
+        }
+    }
+
+    private void insertOrder() {
+        long platformOrderId = nextPlatformOrderId.getAndIncrement();
+        OrderByPoidGeid order = new OrderByPoidGeid(String.valueOf(platformOrderId), "PY_AR", "PY",
+                UUID.randomUUID().toString(), Instant.now().plus(Duration.ofDays(30)));
+        orderStore.insertUnique(order);
+        recentOrders.set((int) (platformOrderId % RECENT_ORDERS), order);
+    }
+
+    private void redeliverOrder() {
+        try {
+            orderStore.insertUnique(recentOrder());
+        } catch (TransactionCanceledException e) {
+            // expected, the order is existing already
+            return;
+        }
+        throw new IllegalStateException("redelivered order inserted twice");
+    }
+
+    // the set of platform vendors of an rps vendor stays the same, their configs change with every message
+    private void updateVendors() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String rpsId = "rps" + random.nextInt(RPS_VENDORS);
+        Instant timestamp = Instant.now().plusMillis(random.nextInt(2001) - 1000);
+        Set<Vendor> vendors = new HashSet<>();
+        for (int i = 0; i < VENDORS_PER_RPS_VENDOR; i++) {
+            vendors.add(new Vendor(rpsId + "-pv" + i, "LH", rpsId, timestamp, UUID.randomUUID().toString()));
+        }
+        vendorListenerLogic.update(vendors, rpsId, timestamp);
+    }
+
+    private OrderByPoidGeid recentOrder() {
+        return recentOrders.get(ThreadLocalRandom.current().nextInt(RECENT_ORDERS));
+    }
+
+    private Operation nextOperation(ThreadLocalRandom random) {
+        double r = random.nextDouble() * totalRate;
+        for (Operation operation : operations) {
+            if (r < cumulativeRates[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    // exponentially distributed, so the arrivals are a Poisson process
+    private static long pauseNanos(ThreadLocalRandom random, double ratePerSecond) {
+        return (long) (-Math.log(1 - random.nextDouble()) / ratePerSecond * 1e9);
+    }
+
+    // arguments as key=value, see the defaults
+    public static void main(String[] args) throws Exception {
+
+        Map<String, String> arguments = new HashMap<>(Map.of(
+                "profile", "EU01",
+                "mode", "OPEN",
+                "speedup", "10",
+                "redeliveries", "0.05",
+                "threads", "4",
+                "seconds", "60"));
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2 || !arguments.containsKey(keyValue[0])) {
+                throw new IllegalArgumentException("unknown argument " + arg + ", expected one of " + arguments.keySet());
+            }
+            arguments.put(keyValue[0], keyValue[1]);
+        }
+        System.out.println("load generator " + arguments);
+
+        LoadProfile profile = LoadProfile.valueOf(arguments.get("profile"));
+        Mode mode = Mode.valueOf(arguments.get("mode"));
+        int threads = Integer.parseInt(arguments.get("threads"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(arguments.get("seconds")));
+
+        try (EmbeddedDynamoDB dynamoDB = new EmbeddedDynamoDB()) {
+            LoadGenerator loadGenerator = new LoadGenerator(dynamoDB, profile,
+                    Double.parseDouble(arguments.get("speedup")), Double.parseDouble(arguments.get("redeliveries")));
+            if (mode == Mode.OPEN) {
+                loadGenerator.runOpen(threads, duration);
+            } else {
+                loadGenerator.runClosed(threads, duration);
+            }
+            loadGenerator.printReport();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package benchmarks;
+
+/*
+the production volumes of the README (see "Costs"), per day. an order is inserted once and then read and updated
+~12 times during its lifecycle (12 reads, 13 writes, see "Costs for OMA").
+ */
+public enum LoadProfile {
+
+    EU01(370_000, 150),
+    AS01(600_000, 10_000);
+
+    public static final int ORDER_STEPS = 12;
+
+    private static final double SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final long ordersPerDay;
+    private final long relationChangesPerDay;
+
+    LoadProfile(long ordersPerDay, long relationChangesPerDay) {
+        this.ordersPerDay = ordersPerDay;
+        this.relationChangesPerDay = relationChangesPerDay;
+    }
+
+    public double ordersPerSecond() {
+        return ordersPerDay / SECONDS_PER_DAY;
+    }
+
+    public double relationChangesPerSecond() {
+        return relationChangesPerDay / SECONDS_PER_DAY;
+    }
+}
@@ -0,0 +1,84 @@
+package benchmarks;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTransactionWriteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import v_final.OrderByPoidGeid;
+import v_final.OrderByPoidGk;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+the order hot paths: the insert of both items in 1 TX (as in v_final.OrderTest) and the loads by both hash keys.
+throughput and latency percentiles (SampleTime) per benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBenchmark {
+
+    private static final int PRELOADED_ORDERS = 10_000;
+
+    private EmbeddedDynamoDB dynamoDB;
+    private DynamoDBMapper mapper;
+    private final AtomicLong nextPlatformOrderId = new AtomicLong(PRELOADED_ORDERS);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dynamoDB = new EmbeddedDynamoDB();
+        mapper = dynamoDB.getMapper();
+        for (int i = 0; i < PRELOADED_ORDERS; i++) {
+            insert(String.valueOf(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dynamoDB.close();
+    }
+
+    @Benchmark
+    public void insertTransactional() {
+        insert(String.valueOf(nextPlatformOrderId.getAndIncrement()));
+    }
+
+    @Benchmark
+    public OrderByPoidGeid loadByPoidGeid() {
+        String platformOrderId = String.valueOf(ThreadLocalRandom.current().nextInt(PRELOADED_ORDERS));
+        return mapper.load(OrderByPoidGeid.class, OrderByPoidGeid.hashKeyOf(platformOrderId, "PY_AR"));
+    }
+
+    @Benchmark
+    public OrderByPoidGk loadByPoidGk() {
+        String platformOrderId = String.valueOf(ThreadLocalRandom.current().nextInt(PRELOADED_ORDERS));
+        return mapper.load(OrderByPoidGk.class, OrderByPoidGk.hashKeyOf(platformOrderId, "PY"));
+    }
+
+    private void insert(String platformOrderId) {
+        Instant cleanupAfter = Instant.now().plus(Duration.ofDays(30));
+        mapper.transactionWrite(new TransactionWriteRequest()
+                .addPut(new OrderByPoidGeid(platformOrderId, "PY_AR", "PY", "grocery", cleanupAfter),
+                        new DynamoDBTransactionWriteExpression().withConditionExpression("attribute_not_exists(pOIDgEID)"))
+                .addPut(new OrderByPoidGk(platformOrderId, "PY_AR", "PY", "grocery", cleanupAfter),
+                        new DynamoDBTransactionWriteExpression().withConditionExpression("attribute_not_exists(pOIDgK)")));
+    }
+}
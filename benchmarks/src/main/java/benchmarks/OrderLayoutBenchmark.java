@@ -0,0 +1,141 @@
+package benchmarks;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import v_final.OrderByPoidGeid;
+import v_final.OrderByPoidGk;
+import v_final.OrderItem;
+import v_final.OrderLayout;
+import v_final.OrderStore;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+insert latency of the order layouts (see OrderLayout), with full and with slim guards (see OrderStore), against DynamoDB
+local, plus the consumed WCU, the number of items and the item sizes per order, printed on tear down.
+
+DynamoDB local has no network hop and no replication, so only the relative latencies are meaningful. the WCU are
+computed by DynamoDB local the same way as by AWS (2 per item of <= 1KB in a TX). for a region, compare the item sizes
+against the 1KB boundary: an item > 1KB doubles its WCU.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderLayoutBenchmark {
+
+    @Param({"TWO_TABLES", "SINGLE_TABLE"})
+    private OrderLayout layout;
+
+    // see OrderStore
+    @Param({"false", "true"})
+    private boolean slimGuards;
+
+    private EmbeddedDynamoDB dynamoDB;
+    private AmazonDynamoDB client;
+    private DynamoDBMapper mapper;
+    private OrderStore orderStore;
+
+    private long orders;
+    private double writeCapacityUnits;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        dynamoDB = new EmbeddedDynamoDB(OrderByPoidGeid.class, OrderByPoidGk.class, OrderItem.class);
+        client = dynamoDB.getClient();
+        mapper = dynamoDB.getMapper();
+
+        orderStore = new OrderStore(client, mapper, layout, slimGuards);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+
+        OrderByPoidGeid sample = newOrder(orders);
+        long itemBytes;
+        if (layout == OrderLayout.TWO_TABLES) {
+            itemBytes = sizeOf(mapper.getTableModel(OrderByPoidGeid.class).convert(sample))
+                    + sizeOf(guard(mapper.getTableModel(OrderByPoidGk.class).convert(new OrderByPoidGk(sample.getPlatformOrderId(),
+                    sample.getGlobalEntityId(), sample.getGlobalKey(), sample.getOrderJsonVersion(), sample.getCleanupAfter())),
+                    OrderByPoidGk.GUARD_ATTRIBUTES));
+        } else {
+            itemBytes = sizeOf(mapper.getTableModel(OrderItem.class).convert(OrderItem.byPoidGeid(sample)))
+                    + sizeOf(guard(mapper.getTableModel(OrderItem.class).convert(OrderItem.byPoidGk(sample)),
+                    OrderItem.GUARD_ATTRIBUTES));
+        }
+        long items = count(OrderByPoidGeid.TABLE_NAME) + count(OrderByPoidGk.TABLE_NAME) + count(OrderItem.TABLE_NAME);
+
+        System.out.println();
+        System.out.println(layout + (slimGuards ? " (slim guards)" : "") + ": " + orders + " orders, " + items + " items, "
+                + String.format("%.2f", writeCapacityUnits / orders) + " WCU per order, ~" + itemBytes + " bytes per order");
+
+        dynamoDB.close();
+    }
+
+    @Benchmark
+    public double insertUnique() {
+        double consumed = orderStore.insertUnique(newOrder(++orders));
+        writeCapacityUnits += consumed;
+        return consumed;
+    }
+
+    private static OrderByPoidGeid newOrder(long platformOrderId) {
+        return new OrderByPoidGeid(String.valueOf(platformOrderId), "PY_AR", "PY", "grocery",
+                Instant.now().plus(Duration.ofDays(30)));
+    }
+
+    private long count(String tableName) {
+        long count = 0;
+        Map<String, AttributeValue> lastEvaluatedKey = null;
+        do {
+            ScanResult result = client.scan(new ScanRequest(tableName).withSelect(Select.COUNT).withExclusiveStartKey(lastEvaluatedKey));
+            count += result.getCount();
+            lastEvaluatedKey = result.getLastEvaluatedKey();
+        } while (lastEvaluatedKey != null);
+        return count;
+    }
+
+    private Map<String, AttributeValue> guard(Map<String, AttributeValue> item, Set<String> guardAttributes) {
+        return slimGuards ? OrderStore.slimGuardOf(item, guardAttributes) : item;
+    }
+
+    // item size as DynamoDB computes it (roughly): attribute names + values, numbers ~ 1 byte per 2 digits
+    private static long sizeOf(Map<String, AttributeValue> item) {
+        long size = 0;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            size += attribute.getKey().getBytes(StandardCharsets.UTF_8).length;
+            AttributeValue value = attribute.getValue();
+            if (value.getS() != null) {
+                size += value.getS().getBytes(StandardCharsets.UTF_8).length;
+            } else if (value.getN() != null) {
+                size += (value.getN().length() + 1) / 2 + 1;
+            }
+        }
+        return size;
+    }
+}
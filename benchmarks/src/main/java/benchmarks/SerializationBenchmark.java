@@ -0,0 +1,91 @@
+package benchmarks;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import v_final.CompositeKey;
+import v_final.EntityCodecs;
+import v_final.Vendor;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+the same vendor puts and gets via the mapper and via the low-level client with v_final.EntityCodecs, so the
+difference is the (de)serialization. see v_final.EntityCodecBenchmark for the conversion alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int VENDORS = 1000;
+
+    private EmbeddedDynamoDB dynamoDB;
+    private AmazonDynamoDB client;
+    private DynamoDBMapper mapper;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dynamoDB = new EmbeddedDynamoDB();
+        client = dynamoDB.getClient();
+        mapper = dynamoDB.getMapper();
+        for (int i = 0; i < VENDORS; i++) {
+            mapper.save(newVendor(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dynamoDB.close();
+    }
+
+    @Benchmark
+    public void mapperSave() {
+        mapper.save(newVendor(ThreadLocalRandom.current().nextInt(VENDORS)));
+    }
+
+    @Benchmark
+    public void clientPutItem() {
+        client.putItem(new PutItemRequest()
+                .withTableName(Vendor.TABLE_NAME)
+                .withItem(EntityCodecs.VENDOR.encode(newVendor(ThreadLocalRandom.current().nextInt(VENDORS)))));
+    }
+
+    @Benchmark
+    public Vendor mapperLoad() {
+        return mapper.load(Vendor.class, CompositeKey.encode("pv" + ThreadLocalRandom.current().nextInt(VENDORS), "LH"));
+    }
+
+    @Benchmark
+    public Vendor clientGetItem() {
+        Map<String, AttributeValue> item = client.getItem(new GetItemRequest()
+                .withTableName(Vendor.TABLE_NAME)
+                .withKey(Map.of("pVIDgK", new AttributeValue(CompositeKey.encode("pv" + ThreadLocalRandom.current().nextInt(VENDORS), "LH")))))
+                .getItem();
+        return EntityCodecs.VENDOR.decode(item);
+    }
+
+    private static Vendor newVendor(int i) {
+        return new Vendor("pv" + i, "LH", "1234", Instant.now(), "{\"some\": \"config\"}");
+    }
+}
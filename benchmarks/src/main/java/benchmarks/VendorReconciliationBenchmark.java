@@ -0,0 +1,84 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import v_final.Vendor;
+import v_final.VendorListenerLogic;
+import v_final.VendorListenerOptions;
+import v_final.VendorWriteResult;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+VendorListenerLogic.update for 1 rps vendor with a varying number of platform vendors, per write mode:
+- update: each message is newer than the one before and moves half of the platform vendors to a new config, so there
+  are updates on every call (no outdated messages). the same for both modes, as only first inserts are batched.
+- insert: each message is for a new rps vendor with new platform vendors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VendorReconciliationBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int numberOfVendors;
+
+    @Param({"CONDITIONAL", "BATCHED"})
+    private VendorListenerOptions.WriteMode writeMode;
+
+    private EmbeddedDynamoDB dynamoDB;
+    private VendorListenerLogic vendorListenerLogic;
+    private long message;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dynamoDB = new EmbeddedDynamoDB();
+        vendorListenerLogic = new VendorListenerLogic(dynamoDB.getClient(),
+                new VendorListenerOptions().withWriteMode(writeMode));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dynamoDB.close();
+    }
+
+    @Benchmark
+    public VendorWriteResult update() {
+        Instant timestamp = Instant.ofEpochMilli(++message);
+        Set<Vendor> vendors = new HashSet<>();
+        for (int i = 0; i < numberOfVendors; i++) {
+            String config = i % 2 == 0 ? "config " + message : "config";
+            vendors.add(new Vendor("pv" + i, "LH", "1234", timestamp, config));
+        }
+        return vendorListenerLogic.update(vendors, "1234", timestamp);
+    }
+
+    @Benchmark
+    public VendorWriteResult insert() {
+        long message = ++this.message;
+        Instant timestamp = Instant.ofEpochMilli(message);
+        String rVID = "rv" + message;
+        Set<Vendor> vendors = new HashSet<>();
+        for (int i = 0; i < numberOfVendors; i++) {
+            vendors.add(new Vendor("pv" + i + "-" + message, "LH", rVID, timestamp, "config"));
+        }
+        return vendorListenerLogic.update(vendors, rVID, timestamp);
+    }
+}
@@ -0,0 +1,152 @@
+package testsupport;
+
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+one in-memory DynamoDB local per JVM, shared by all test classes using this extension, on a free port (so it does not
+collide with a running benchmark or a second build). started on first use, stopped at the end of the test run.
+
+the tables are created from the annotations of the given entities (hash/range key, GSIs and LSIs, see
+DynamoDBMapper.generateCreateTableRequest) before the first test of the class and deleted after the last one. after
+each test they are dropped and created again, which takes a few ms in memory, instead of scanning and deleting the items
+one by one.
+
+    @RegisterExtension
+    static final DynamoDBLocalExtension dynamoDB = new DynamoDBLocalExtension(OrderByPoidGeid.class, OrderByPoidGk.class);
+
+the test classes share the server, so the ones using the same table names must not run in parallel (they don't by
+default).
+ */
+public class DynamoDBLocalExtension implements BeforeAllCallback, AfterEachCallback, AfterAllCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(DynamoDBLocalExtension.class);
+
+    private final List<CreateTableRequest> createTableRequests = new ArrayList<>();
+    private final Map<String, ProjectionType> projectionTypeByIndex = new HashMap<>();
+    private String timeToLiveAttribute;
+
+    private Server server;
+
+    public DynamoDBLocalExtension(Class<?>... entities) {
+        createTableRequests.addAll(DynamoDBLocalServer.createTableRequestsOf(entities));
+    }
+
+    // ALL, if not given
+    public DynamoDBLocalExtension withProjectionType(String indexName, ProjectionType projectionType) {
+        projectionTypeByIndex.put(indexName, projectionType);
+        return this;
+    }
+
+    // TTL is enabled on all tables, if given (DynamoDB local never deletes expired items though)
+    public DynamoDBLocalExtension withTimeToLiveAttribute(String timeToLiveAttribute) {
+        this.timeToLiveAttribute = timeToLiveAttribute;
+        return this;
+    }
+
+    public AmazonDynamoDB getClient() {
+        return server.dynamoDBLocal.getClient();
+    }
+
+    // eventually consistent reads by default, as in the tests before
+    public DynamoDBMapper newMapper() {
+        return new DynamoDBMapper(getClient(), DynamoDBMapperConfig.builder()
+                .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.EVENTUAL)
+                .build());
+    }
+
+    // for additional clients, e.g. async ones
+    public AwsClientBuilder.EndpointConfiguration getEndpointConfiguration() {
+        return server.dynamoDBLocal.getEndpointConfiguration();
+    }
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        server = context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(Server.class, key -> new Server(), Server.class);
+        // left over by a test class, which failed to clean up
+        deleteTables();
+        createTables();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        deleteTables();
+        createTables();
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        deleteTables();
+    }
+
+    private void createTables() {
+        for (CreateTableRequest createTableRequest : createTableRequests) {
+            getClient().createTable(withProjections(createTableRequest.clone()));
+            if (timeToLiveAttribute != null) {
+                getClient().updateTimeToLive(new UpdateTimeToLiveRequest()
+                        .withTableName(createTableRequest.getTableName())
+                        .withTimeToLiveSpecification(new TimeToLiveSpecification()
+                                .withAttributeName(timeToLiveAttribute)
+                                .withEnabled(true)));
+            }
+        }
+    }
+
+    private void deleteTables() {
+        for (CreateTableRequest createTableRequest : createTableRequests) {
+            try {
+                getClient().deleteTable(createTableRequest.getTableName());
+            } catch (ResourceNotFoundException e) {
+                // not existing (yet)
+            }
+        }
+    }
+
+    private CreateTableRequest withProjections(CreateTableRequest createTableRequest) {
+        if (createTableRequest.getGlobalSecondaryIndexes() != null) {
+            for (GlobalSecondaryIndex index : createTableRequest.getGlobalSecondaryIndexes()) {
+                index.setProjection(projectionOf(index.getIndexName()));
+            }
+        }
+        if (createTableRequest.getLocalSecondaryIndexes() != null) {
+            for (LocalSecondaryIndex index : createTableRequest.getLocalSecondaryIndexes()) {
+                index.setProjection(projectionOf(index.getIndexName()));
+            }
+        }
+        return createTableRequest;
+    }
+
+    private Projection projectionOf(String indexName) {
+        return new Projection().withProjectionType(projectionTypeByIndex.getOrDefault(indexName, ProjectionType.ALL));
+    }
+
+    // closed with the root context, at the end of the test run
+    private static class Server implements ExtensionContext.Store.CloseableResource {
+
+        private final DynamoDBLocalServer dynamoDBLocal = new DynamoDBLocalServer();
+
+        @Override
+        public void close() throws Exception {
+            dynamoDBLocal.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package testsupport;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.local.main.ServerRunner;
+import com.amazonaws.services.dynamodbv2.local.server.DynamoDBProxyServer;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+in-memory DynamoDB local on a free port (so it does not collide with running tests, benchmarks or a second build), with
+a client. the bootstrap and the table definitions of DynamoDBLocalExtension (tests) and benchmarks.EmbeddedDynamoDB (JMH,
+without JUnit).
+
+the sqlite libs are loaded from `native-libs` in the working directory (see README).
+ */
+public class DynamoDBLocalServer implements AutoCloseable {
+
+    private final DynamoDBProxyServer proxyServer;
+    private final int port;
+    private final AmazonDynamoDB client;
+
+    public DynamoDBLocalServer() {
+        System.setProperty("sqlite4java.library.path", "native-libs");
+        try {
+            port = freePort();
+            proxyServer = ServerRunner.createServerFromCommandLineArgs(new String[]{"-inMemory", "-port", String.valueOf(port)});
+            proxyServer.start();
+        } catch (Exception e) {
+            throw new IllegalStateException("could not start DynamoDB local", e);
+        }
+        client = AmazonDynamoDBClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(getEndpointConfiguration())
+                .build();
+    }
+
+    public AmazonDynamoDB getClient() {
+        return client;
+    }
+
+    // for additional clients, e.g. async ones
+    public AwsClientBuilder.EndpointConfiguration getEndpointConfiguration() {
+        return new AwsClientBuilder.EndpointConfiguration("http://localhost:" + port, "eu-west-1");
+    }
+
+    /*
+    the tables of the entities, generated from their annotations (hash/range key, GSIs and LSIs, see
+    DynamoDBMapper.generateCreateTableRequest), on demand. the indexes project ALL attributes.
+     */
+    public static List<CreateTableRequest> createTableRequestsOf(Class<?>... entities) {
+        AmazonDynamoDB unusedClient = unusedClient();
+        DynamoDBMapper mapper = new DynamoDBMapper(unusedClient);
+        List<CreateTableRequest> createTableRequests = new ArrayList<>();
+        for (Class<?> entity : entities) {
+            CreateTableRequest createTableRequest = mapper.generateCreateTableRequest(entity)
+                    .withBillingMode(BillingMode.PAY_PER_REQUEST);
+            if (createTableRequest.getGlobalSecondaryIndexes() != null) {
+                for (GlobalSecondaryIndex index : createTableRequest.getGlobalSecondaryIndexes()) {
+                    index.setProjection(new Projection().withProjectionType(ProjectionType.ALL));
+                }
+            }
+            if (createTableRequest.getLocalSecondaryIndexes() != null) {
+                for (LocalSecondaryIndex index : createTableRequest.getLocalSecondaryIndexes()) {
+                    index.setProjection(new Projection().withProjectionType(ProjectionType.ALL));
+                }
+            }
+            createTableRequests.add(createTableRequest);
+        }
+        unusedClient.shutdown();
+        return createTableRequests;
+    }
+
+    // for a mapper, which only reads the annotations or converts items. never sends a request (nothing listens there)
+    public static AmazonDynamoDB unusedClient() {
+        return AmazonDynamoDBClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:1", "eu-west-1"))
+                .build();
+    }
+
+    @Override
+    public void close() throws Exception {
+        client.shutdown();
+        proxyServer.stop();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -1,119 +1,37 @@
 package v4;
 
-import com.amazonaws.ClientConfiguration;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTransactionWriteExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedScanList;
 import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
-import com.amazonaws.services.dynamodbv2.local.main.ServerRunner;
-import com.amazonaws.services.dynamodbv2.local.server.DynamoDBProxyServer;
-import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
-import com.amazonaws.services.dynamodbv2.model.BillingMode;
-import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
-import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
-import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
-import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
-import com.amazonaws.services.dynamodbv2.model.KeyType;
-import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
-import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
 import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
-import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
-import com.amazonaws.waiters.WaiterParameters;
-import org.junit.jupiter.api.AfterAll;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import testsupport.DynamoDBLocalExtension;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class OrderTest {
 
-    private static DynamoDBProxyServer server;
+    @RegisterExtension
+    static final DynamoDBLocalExtension dynamoDB = new DynamoDBLocalExtension(OrderByPoidGeid.class, OrderByPoidGk.class)
+            .withTimeToLiveAttribute("ttl");
+
     private static AmazonDynamoDB client;
     private static DynamoDBMapper mapper;
 
     @BeforeAll
-    public static void beforeAll() throws Exception {
-
-        System.setProperty("sqlite4java.library.path", "native-libs");
-        server = ServerRunner.createServerFromCommandLineArgs(new String[]{"-inMemory", "-port", "4566"});
-        server.start();
-
-        client = AmazonDynamoDBClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
-                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:4566", "eu-west-1"))
-                .build();
-
-        CreateTableRequest createTableRequest = new CreateTableRequest()
-                .withTableName(OrderByPoidGeid.TABLE_NAME)
-                .withAttributeDefinitions(new AttributeDefinition("pOIDgEID", ScalarAttributeType.S))
-                .withKeySchema(new KeySchemaElement("pOIDgEID", KeyType.HASH))
-                .withBillingMode(BillingMode.PAY_PER_REQUEST);
-
-        CreateTableResult createTableResult = client.createTable(createTableRequest);
-        System.out.println(createTableResult.getTableDescription());
-
-        client.waiters().tableExists().run(new WaiterParameters<>(new DescribeTableRequest(OrderByPoidGeid.TABLE_NAME)));
-        System.out.println("table " + OrderByPoidGeid.TABLE_NAME + " is ACTIVE now");
-
-        UpdateTimeToLiveRequest updateTimeToLiveRequest = new UpdateTimeToLiveRequest()
-                .withTableName(OrderByPoidGeid.TABLE_NAME)
-                .withTimeToLiveSpecification(new TimeToLiveSpecification()
-                        .withAttributeName("ttl")
-                        .withEnabled(true));
-        client.updateTimeToLive(updateTimeToLiveRequest);
-
-        createTableRequest = new CreateTableRequest()
-                .withTableName(OrderByPoidGk.TABLE_NAME)
-                .withAttributeDefinitions(new AttributeDefinition("pOIDgK", ScalarAttributeType.S))
-                .withKeySchema(new KeySchemaElement("pOIDgK", KeyType.HASH))
-                .withBillingMode(BillingMode.PAY_PER_REQUEST);
-
-        createTableResult = client.createTable(createTableRequest);
-        System.out.println(createTableResult.getTableDescription());
-
-        client.waiters().tableExists().run(new WaiterParameters<>(new DescribeTableRequest(OrderByPoidGk.TABLE_NAME)));
-        System.out.println("table " + OrderByPoidGeid.TABLE_NAME + " is ACTIVE now");
-
-        updateTimeToLiveRequest = new UpdateTimeToLiveRequest()
-                .withTableName(OrderByPoidGk.TABLE_NAME)
-                .withTimeToLiveSpecification(new TimeToLiveSpecification()
-                        .withAttributeName("ttl")
-                        .withEnabled(true));
-        client.updateTimeToLive(updateTimeToLiveRequest);
-
-        DynamoDBMapperConfig dynamoDBMapperConfig = DynamoDBMapperConfig.builder()
-                .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.EVENTUAL)
-                .build();
-        mapper = new DynamoDBMapper(client, dynamoDBMapperConfig);
-    }
-
-    @AfterEach
-    public void afterEach() {
-        PaginatedScanList<OrderByPoidGeid> allOrdersByPoidGeid = mapper.scan(OrderByPoidGeid.class, new DynamoDBScanExpression());
-        allOrdersByPoidGeid.forEach(order -> mapper.delete(order));
-        PaginatedScanList<OrderByPoidGk> allOrdersByPoidGk = mapper.scan(OrderByPoidGk.class, new DynamoDBScanExpression());
-        allOrdersByPoidGk.forEach(order -> mapper.delete(order));
-    }
-
-    @AfterAll
-    public static void afterAll() throws Exception {
-        client.deleteTable(OrderByPoidGeid.TABLE_NAME);
-        client.deleteTable(OrderByPoidGk.TABLE_NAME);
-        server.stop();
+    public static void beforeAll() {
+        client = dynamoDB.getClient();
+        mapper = dynamoDB.newMapper();
     }
 
     // https://docs.aws.amazon.com/amazondynamodb/latest/developerguide/Limits.html#default-limits-throughput-capacity-modes
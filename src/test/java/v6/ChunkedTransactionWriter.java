@@ -0,0 +1,171 @@
+package v6;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTransactionWriteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+writes the changes of a vendor update in as many TXs as needed, as only 25 items fit into one TX (100 nowadays in
+AWS, but DynamoDB local still has the 25 items limit).
+
+- each TX contains an update of the `VendorFence` of the rVID. the first TX only succeeds, if no newer message has been
+  (partially) applied. each following TX only succeeds, if the fence still belongs to this message and all former
+  chunks have been applied. so chunks of 2 concurrent messages are never interleaved: the older one is cancelled.
+- the conditional items (the guards: puts of new vendors, which might exist for another rVID, and the timestamp guarded
+  updates) come first, so most of the failing conditions fail before anything has been applied.
+- a partially applied message (e.g. crash or cancelled TX in between) is visible in the fence and can be resumed by
+  passing the number of applied chunks as `chunksApplied`. the vendors written by the applied chunks may still be
+  passed (the GSI read of the resumed message may not show them yet): when resuming, the guards also accept the
+  vendors as written by this message (same rVID and ts), so they are written again instead of cancelling the TX.
+ */
+public class ChunkedTransactionWriter {
+
+    public static final int MAX_ITEMS_PER_TRANSACTION = 25;
+
+    private final DynamoDBMapper mapper;
+    private final DynamoDBMapperConfig mapperConfigConsistent;
+    private final int maxVendorsPerTransaction;
+
+    public ChunkedTransactionWriter(DynamoDBMapper mapper) {
+        this(mapper, MAX_ITEMS_PER_TRANSACTION);
+    }
+
+    public ChunkedTransactionWriter(DynamoDBMapper mapper, int maxItemsPerTransaction) {
+        if (maxItemsPerTransaction < 2) {
+            throw new IllegalArgumentException("at least 1 vendor and the fence must fit into a TX");
+        }
+        this.mapper = mapper;
+        this.mapperConfigConsistent = DynamoDBMapperConfig.builder()
+                .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
+                .build();
+        // 1 item of each TX is the fence
+        this.maxVendorsPerTransaction = maxItemsPerTransaction - 1;
+    }
+
+    // null, if no message has been applied yet for the rVID
+    public VendorFence loadFence(String rVID) {
+        return mapper.load(VendorFence.class, VendorFence.hashKeyOf(rVID), mapperConfigConsistent);
+    }
+
+    // returns the number of TXs written
+    public int write(String rVID, Instant latestTimeStamp, int chunksApplied,
+                     Collection<Vendor> vendorsToPut, Collection<Vendor> vendorsToUpdate, Collection<Vendor> vendorsToDelete) {
+
+        List<Operation> operations = new ArrayList<>(vendorsToPut.size() + vendorsToUpdate.size() + vendorsToDelete.size());
+        boolean resuming = chunksApplied > 0;
+        long ets = latestTimeStamp.toEpochMilli();
+        AttributeValue ts = new AttributeValue().withN(String.valueOf(ets));
+
+        // guards first
+        sorted(vendorsToPut).forEach(v -> operations.add(new Operation(OperationType.PUT, v,
+                putExpression(rVID, ts, resuming))));
+        sorted(vendorsToUpdate).forEach(v -> operations.add(new Operation(OperationType.UPDATE, v,
+                updateExpression(ts, resuming))));
+        sorted(vendorsToDelete).forEach(v -> operations.add(new Operation(OperationType.DELETE, v, null)));
+
+        if (operations.isEmpty()) {
+            return 0;
+        }
+
+        int chunks = (operations.size() + maxVendorsPerTransaction - 1) / maxVendorsPerTransaction;
+        int chunksTotal = chunksApplied + chunks;
+
+        for (int chunk = 0; chunk < chunks; chunk++) {
+
+            TransactionWriteRequest transactionWriteRequest = new TransactionWriteRequest();
+
+            int from = chunk * maxVendorsPerTransaction;
+            int to = Math.min(from + maxVendorsPerTransaction, operations.size());
+            operations.subList(from, to).forEach(operation -> operation.addTo(transactionWriteRequest));
+
+            int chunkIndex = chunksApplied + chunk;
+            transactionWriteRequest.addUpdate(new VendorFence(rVID, ets, chunkIndex + 1, chunksTotal),
+                    fenceExpression(ets, chunkIndex));
+
+            // a TransactionCanceledException stops the update. the fence tells, how far it went.
+            mapper.transactionWrite(transactionWriteRequest);
+        }
+
+        return chunks;
+    }
+
+    private static DynamoDBTransactionWriteExpression putExpression(String rVID, AttributeValue ts, boolean resuming) {
+        if (!resuming) {
+            // only add the platform vendor, if not yet existing for another rVID
+            return new DynamoDBTransactionWriteExpression().withConditionExpression("attribute_not_exists(pVIDgK)");
+        }
+        // or already added by a former chunk of this message
+        return new DynamoDBTransactionWriteExpression()
+                .withConditionExpression("attribute_not_exists(pVIDgK) OR (rVID = :rVID AND ts = :ts)")
+                .withExpressionAttributeValues(Map.of(":rVID", new AttributeValue(rVID), ":ts", ts));
+    }
+
+    private static DynamoDBTransactionWriteExpression updateExpression(AttributeValue ts, boolean resuming) {
+        // only update, if queue message is more recent (or already updated by a former chunk of this message)
+        return new DynamoDBTransactionWriteExpression()
+                .withConditionExpression(resuming ? "ts <= :ts" : "ts < :ts")
+                .withExpressionAttributeValues(Map.of(":ts", ts));
+    }
+
+    private static DynamoDBTransactionWriteExpression fenceExpression(long ets, int chunkIndex) {
+        if (chunkIndex == 0) {
+            // no (partially) applied message, which is newer
+            return new DynamoDBTransactionWriteExpression()
+                    .withConditionExpression("attribute_not_exists(pVIDgK) OR fenceTs < :ets")
+                    .withExpressionAttributeValues(Map.of(":ets", new AttributeValue().withN(String.valueOf(ets))));
+        }
+        // still this message and no chunk missing
+        return new DynamoDBTransactionWriteExpression()
+                .withConditionExpression("fenceTs = :ets AND chunksApplied = :chunksApplied")
+                .withExpressionAttributeValues(Map.of(
+                        ":ets", new AttributeValue().withN(String.valueOf(ets)),
+                        ":chunksApplied", new AttributeValue().withN(String.valueOf(chunkIndex))));
+    }
+
+    // same order of the vendors for the same changes, so a resumed message is chunked the same way as far as possible
+    private static List<Vendor> sorted(Collection<Vendor> vendors) {
+        List<Vendor> sorted = new ArrayList<>(vendors);
+        sorted.sort(Comparator.comparing(Vendor::getHashKey));
+        return sorted;
+    }
+
+    private enum OperationType {
+        PUT, UPDATE, DELETE
+    }
+
+    private static class Operation {
+
+        private final OperationType type;
+        private final Vendor vendor;
+        private final DynamoDBTransactionWriteExpression expression;
+
+        Operation(OperationType type, Vendor vendor, DynamoDBTransactionWriteExpression expression) {
+            this.type = type;
+            this.vendor = vendor;
+            this.expression = expression;
+        }
+
+        void addTo(TransactionWriteRequest transactionWriteRequest) {
+            switch (type) {
+                case PUT:
+                    transactionWriteRequest.addPut(vendor, expression);
+                    break;
+                case UPDATE:
+                    transactionWriteRequest.addUpdate(vendor, expression);
+                    break;
+                case DELETE:
+                    transactionWriteRequest.addDelete(vendor);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package v6;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// counters of the `TransactionRetryPolicy`, to see how many write attempts (and thus write units) a message costs
+public class TransactionRetryMetrics {
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder throttles = new LongAdder();
+    private final LongAdder conditionsFailed = new LongAdder();
+    private final LongAdder retriesExhausted = new LongAdder();
+    // index: number of attempts of a message - 1
+    private final AtomicLongArray attemptsPerMessage;
+
+    public TransactionRetryMetrics(int maxAttempts) {
+        attemptsPerMessage = new AtomicLongArray(maxAttempts);
+    }
+
+    void recordMessage(int attemptsOfMessage) {
+        messages.increment();
+        attempts.add(attemptsOfMessage);
+        attemptsPerMessage.incrementAndGet(Math.min(attemptsOfMessage, attemptsPerMessage.length()) - 1);
+    }
+
+    void recordConflict() {
+        conflicts.increment();
+    }
+
+    void recordThrottle() {
+        throttles.increment();
+    }
+
+    void recordConditionFailed() {
+        conditionsFailed.increment();
+    }
+
+    void recordRetriesExhausted() {
+        retriesExhausted.increment();
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    public long getThrottles() {
+        return throttles.sum();
+    }
+
+    public long getConditionsFailed() {
+        return conditionsFailed.sum();
+    }
+
+    public long getRetriesExhausted() {
+        return retriesExhausted.sum();
+    }
+
+    // number of messages, which needed exactly the given number of attempts
+    public long getMessagesWithAttempts(int attemptsOfMessage) {
+        return attemptsPerMessage.get(attemptsOfMessage - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionRetryMetrics{" +
+                "messages=" + getMessages() +
+                ", attempts=" + getAttempts() +
+                ", conflicts=" + getConflicts() +
+                ", throttles=" + getThrottles() +
+                ", conditionsFailed=" + getConditionsFailed() +
+                ", retriesExhausted=" + getRetriesExhausted() +
+                ", attemptsPerMessage=" + attemptsPerMessage +
+                '}';
+    }
+}
@@ -0,0 +1,142 @@
+package v6;
+
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+retries a vendor update only, if its TX has been cancelled due to a concurrent TX or throttling. a failed condition
+(queue message outdated, platform vendor existing for another rVID, fence of a newer message) will fail again, so we
+give up immediately.
+
+backoff is "decorrelated jitter": sleep = random(base, 3 * last sleep), capped.
+https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+ */
+public class TransactionRetryPolicy {
+
+    enum Decision {
+        RETRY, CONDITION_FAILED, FAIL
+    }
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final TransactionRetryMetrics metrics;
+
+    public TransactionRetryPolicy() {
+        this(5, 20, 1000);
+    }
+
+    public TransactionRetryPolicy(int maxAttempts, long baseBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("at least 1 attempt needed");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.metrics = new TransactionRetryMetrics(maxAttempts);
+    }
+
+    public TransactionRetryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /*
+    runs the update until it succeeds, a condition failed (skipped, the message is outdated), or it is not retryable or
+    the attempts are exhausted (the exception is thrown).
+     */
+    public void execute(Runnable update) {
+
+        long backoff = baseBackoffMillis;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                update.run();
+                metrics.recordMessage(attempt);
+                return;
+            } catch (TransactionCanceledException e) {
+
+                Decision decision = classify(e);
+                if (decision == Decision.RETRY) {
+                    recordRetryReasons(e);
+                }
+
+                if (decision == Decision.CONDITION_FAILED) {
+                    metrics.recordConditionFailed();
+                    metrics.recordMessage(attempt);
+                    // queue message outdated or platform vendor existing for another rVID, skip
+                    return;
+                }
+                if (decision == Decision.FAIL) {
+                    metrics.recordMessage(attempt);
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    metrics.recordRetriesExhausted();
+                    metrics.recordMessage(attempt);
+                    throw e;
+                }
+
+                backoff = Math.min(maxBackoffMillis,
+                        ThreadLocalRandom.current().nextLong(baseBackoffMillis, Math.max(baseBackoffMillis, backoff * 3) + 1));
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    metrics.recordMessage(attempt);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // package-private for tests. no side effects, the metrics are recorded by `execute`
+    static Decision classify(TransactionCanceledException e) {
+
+        List<CancellationReason> reasons = e.getCancellationReasons();
+        if (reasons == null || reasons.isEmpty()) {
+            return Decision.FAIL;
+        }
+
+        boolean retryable = false;
+        for (CancellationReason reason : reasons) {
+            String code = reason.getCode();
+            if (code == null || "None".equals(code)) {
+                continue;
+            }
+            switch (code) {
+                case "ConditionalCheckFailed":
+                    // no retry, even if other items have been cancelled due to conflicts
+                    return Decision.CONDITION_FAILED;
+                case "TransactionConflict":
+                case "ThrottlingError":
+                case "ProvisionedThroughputExceeded":
+                    retryable = true;
+                    break;
+                default:
+                    // e.g. ValidationError, ItemCollectionSizeLimitExceeded
+                    return Decision.FAIL;
+            }
+        }
+        return retryable ? Decision.RETRY : Decision.FAIL;
+    }
+
+    // once per cancelled attempt: a conflict and/or a throttle
+    private void recordRetryReasons(TransactionCanceledException e) {
+        boolean conflict = false;
+        boolean throttle = false;
+        for (CancellationReason reason : e.getCancellationReasons()) {
+            String code = reason.getCode();
+            conflict |= "TransactionConflict".equals(code);
+            throttle |= "ThrottlingError".equals(code) || "ProvisionedThroughputExceeded".equals(code);
+        }
+        if (conflict) {
+            metrics.recordConflict();
+        }
+        if (throttle) {
+            metrics.recordThrottle();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package v6;
+
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransactionRetryPolicyTest {
+
+    @Test
+    public void testClassify() {
+
+        assertEquals(TransactionRetryPolicy.Decision.CONDITION_FAILED, classify("None", "ConditionalCheckFailed"));
+        assertEquals(TransactionRetryPolicy.Decision.RETRY, classify("None", "TransactionConflict"));
+        assertEquals(TransactionRetryPolicy.Decision.RETRY, classify("ThrottlingError"));
+        assertEquals(TransactionRetryPolicy.Decision.RETRY, classify("ProvisionedThroughputExceeded"));
+        assertEquals(TransactionRetryPolicy.Decision.FAIL, classify("ValidationError"));
+        assertEquals(TransactionRetryPolicy.Decision.FAIL, classify("ItemCollectionSizeLimitExceeded"));
+        assertEquals(TransactionRetryPolicy.Decision.FAIL, classify("None", "None"));
+        assertEquals(TransactionRetryPolicy.Decision.FAIL, classify());
+        assertEquals(TransactionRetryPolicy.Decision.FAIL,
+                TransactionRetryPolicy.classify(new TransactionCanceledException("no reasons")));
+
+        // mixed: a failed condition wins over a conflict, anything unknown over a conflict
+        assertEquals(TransactionRetryPolicy.Decision.CONDITION_FAILED,
+                classify("TransactionConflict", "ConditionalCheckFailed"));
+        assertEquals(TransactionRetryPolicy.Decision.FAIL, classify("TransactionConflict", "ValidationError"));
+    }
+
+    @Test
+    public void testNoAttempts() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionRetryPolicy(0, 1, 2));
+    }
+
+    @Test
+    public void testRetriedUntilSuccess() {
+
+        TransactionRetryPolicy policy = new TransactionRetryPolicy(5, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+
+        policy.execute(() -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                throw cancelled("None", "TransactionConflict", "TransactionConflict");
+            }
+            if (call == 2) {
+                throw cancelled("ThrottlingError");
+            }
+        });
+
+        TransactionRetryMetrics metrics = policy.getMetrics();
+        assertEquals(3, calls.get());
+        assertEquals(1, metrics.getMessages());
+        assertEquals(3, metrics.getAttempts());
+        assertEquals(1, metrics.getMessagesWithAttempts(3));
+        // once per cancelled attempt
+        assertEquals(1, metrics.getConflicts());
+        assertEquals(1, metrics.getThrottles());
+        assertEquals(0, metrics.getConditionsFailed());
+        assertEquals(0, metrics.getRetriesExhausted());
+    }
+
+    @Test
+    public void testRetriesExhausted() {
+
+        TransactionRetryPolicy policy = new TransactionRetryPolicy(3, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+        TransactionCanceledException conflict = cancelled("TransactionConflict");
+
+        assertSame(conflict, assertThrows(TransactionCanceledException.class, () -> policy.execute(() -> {
+            calls.incrementAndGet();
+            throw conflict;
+        })));
+
+        TransactionRetryMetrics metrics = policy.getMetrics();
+        assertEquals(3, calls.get());
+        assertEquals(1, metrics.getMessages());
+        assertEquals(3, metrics.getAttempts());
+        assertEquals(3, metrics.getConflicts());
+        assertEquals(1, metrics.getRetriesExhausted());
+    }
+
+    @Test
+    public void testNotRetried() {
+
+        TransactionRetryPolicy policy = new TransactionRetryPolicy(5, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+
+        // outdated: skipped, a conflict on another item of the TX is not counted
+        policy.execute(() -> {
+            calls.incrementAndGet();
+            throw cancelled("TransactionConflict", "ConditionalCheckFailed");
+        });
+        assertEquals(1, calls.get());
+        assertEquals(1, policy.getMetrics().getConditionsFailed());
+        assertEquals(0, policy.getMetrics().getConflicts());
+
+        // not retryable: rethrown
+        assertThrows(TransactionCanceledException.class, () -> policy.execute(() -> {
+            calls.incrementAndGet();
+            throw cancelled("TransactionConflict", "ValidationError");
+        }));
+        assertEquals(2, calls.get());
+        assertEquals(0, policy.getMetrics().getConflicts());
+        assertEquals(2, policy.getMetrics().getMessages());
+        assertEquals(2, policy.getMetrics().getMessagesWithAttempts(1));
+    }
+
+    private static TransactionRetryPolicy.Decision classify(String... codes) {
+        return TransactionRetryPolicy.classify(cancelled(codes));
+    }
+
+    // 1 reason per item of the TX, "None" for the items, which did not cancel it
+    private static TransactionCanceledException cancelled(String... codes) {
+        List<CancellationReason> reasons = new ArrayList<>();
+        for (String code : codes) {
+            reasons.add(new CancellationReason().withCode(code));
+        }
+        TransactionCanceledException e = new TransactionCanceledException("cancelled");
+        e.setCancellationReasons(reasons);
+        return e;
+    }
+}
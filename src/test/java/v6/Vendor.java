@@ -75,13 +75,14 @@ public class Vendor {
         this.config = config;
     }
 
+    // epoch millis, as a number. the ISO string does not sort by time ("...:00Z" > "...:00.5Z")
     @DynamoDBAttribute(attributeName = "ts")
-    public String getCreatedAt() {
-        return timestamp.toString();
+    public long getTs() {
+        return timestamp.toEpochMilli();
     }
 
-    public void setCreatedAt(String createdAt) {
-        timestamp = Instant.parse(createdAt);
+    public void setTs(long ts) {
+        timestamp = Instant.ofEpochMilli(ts);
     }
 
     @DynamoDBHashKey(attributeName = "pVIDgK")
@@ -0,0 +1,101 @@
+package v6;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIgnore;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+
+/*
+one item per rVID in the vendor table, which is part of every TX of a chunked vendor update. it knows the timestamp of
+the queue message being applied and how many of its chunks (TXs) have been applied already. so a partially applied
+update can be detected (chunksApplied < chunksTotal) and resumed, and a chunk of an older message can not be applied
+after a newer message has started.
+
+the item has no rVID attribute, so it is not part of the rVIDGsi.
+ */
+@DynamoDBTable(tableName = Vendor.TABLE_NAME)
+public class VendorFence {
+
+    // platform vendor ids do not start with "#", so no conflict with the hash keys of vendors
+    private static final String HASH_KEY_PREFIX = "#fence<<>>";
+
+    private String rpsId;
+    private long fenceTs;
+    private int chunksApplied;
+    private int chunksTotal;
+
+    public VendorFence(String rpsId, long fenceTs, int chunksApplied, int chunksTotal) {
+        this.rpsId = rpsId;
+        this.fenceTs = fenceTs;
+        this.chunksApplied = chunksApplied;
+        this.chunksTotal = chunksTotal;
+    }
+
+    public VendorFence() {
+    }
+
+    public static String hashKeyOf(String rpsId) {
+        return HASH_KEY_PREFIX + rpsId;
+    }
+
+    @DynamoDBIgnore
+    public String getRpsId() {
+        return rpsId;
+    }
+
+    public void setRpsId(String rpsId) {
+        this.rpsId = rpsId;
+    }
+
+    @DynamoDBHashKey(attributeName = "pVIDgK")
+    public String getHashKey() {
+        return hashKeyOf(rpsId);
+    }
+
+    public void setHashKey(String hashKey) {
+        rpsId = hashKey.substring(HASH_KEY_PREFIX.length());
+    }
+
+    // epoch millis of the queue message, which is (or has been) applied
+    @DynamoDBAttribute(attributeName = "fenceTs")
+    public long getFenceTs() {
+        return fenceTs;
+    }
+
+    public void setFenceTs(long fenceTs) {
+        this.fenceTs = fenceTs;
+    }
+
+    @DynamoDBAttribute(attributeName = "chunksApplied")
+    public int getChunksApplied() {
+        return chunksApplied;
+    }
+
+    public void setChunksApplied(int chunksApplied) {
+        this.chunksApplied = chunksApplied;
+    }
+
+    @DynamoDBAttribute(attributeName = "chunksTotal")
+    public int getChunksTotal() {
+        return chunksTotal;
+    }
+
+    public void setChunksTotal(int chunksTotal) {
+        this.chunksTotal = chunksTotal;
+    }
+
+    @DynamoDBIgnore
+    public boolean isComplete() {
+        return chunksApplied >= chunksTotal;
+    }
+
+    @Override
+    public String toString() {
+        return "VendorFence{" +
+                "rpsId='" + rpsId + '\'' +
+                ", fenceTs=" + fenceTs +
+                ", chunksApplied=" + chunksApplied +
+                ", chunksTotal=" + chunksTotal +
+                '}';
+    }
+}
@@ -4,9 +4,7 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTransactionWriteExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
-import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 
 import java.time.Instant;
@@ -20,6 +18,8 @@ public class VendorListenerLogic {
     private final DynamoDBMapperConfig mapperConfigEventual;
     private final DynamoDBMapperConfig mapperConfigConsistent;
     private final DynamoDBMapper mapper;
+    private final ChunkedTransactionWriter transactionWriter;
+    private final TransactionRetryPolicy retryPolicy;
 
     public VendorListenerLogic(AmazonDynamoDB client) {
         this.client = client;
@@ -30,9 +30,33 @@ public class VendorListenerLogic {
                 .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
                 .build();
         mapper = new DynamoDBMapper(client);
+        transactionWriter = new ChunkedTransactionWriter(mapper);
+        retryPolicy = new TransactionRetryPolicy();
     }
 
+    /*
+    a TransactionCanceledException due to a failed condition (latestTimeStamp is out of date, or the platform vendor
+    already exists for some other rps vendor) is not retried. only if the TX was cancelled due to a concurrent TX (or
+    throttling), the whole update is retried: it is read again and resumed from the first chunk not applied yet.
+     */
     public void update(Set<Vendor> latestVendorsForRvid, String rVID, Instant latestTimeStamp) {
+        retryPolicy.execute(() -> applyUpdate(latestVendorsForRvid, rVID, latestTimeStamp));
+    }
+
+    public TransactionRetryMetrics getRetryMetrics() {
+        return retryPolicy.getMetrics();
+    }
+
+    private void applyUpdate(Set<Vendor> latestVendorsForRvid, String rVID, Instant latestTimeStamp) {
+
+        VendorFence fence = transactionWriter.loadFence(rVID);
+        long ets = latestTimeStamp.toEpochMilli();
+        if (fence != null && (fence.getFenceTs() > ets || fence.getFenceTs() == ets && fence.isComplete())) {
+            // a newer message has been (partially) applied, or this message has been applied completely already
+            return;
+        }
+        // this message has been applied partially, e.g. a later chunk failed or the listener died in between
+        boolean resuming = fence != null && fence.getFenceTs() == ets;
 
         DynamoDBQueryExpression<Vendor> gsiQuery = new DynamoDBQueryExpression<Vendor>()
                 .withIndexName("rVIDGsi")
@@ -59,6 +83,10 @@ public class VendorListenerLogic {
                 .filter(existingVendor -> latestVendorsForRvid.stream()
                         .anyMatch(latestVendor -> latestVendor.getHashKey().equals(existingVendor.getHashKey())))
                 .collect(Collectors.toSet());
+        if (resuming) {
+            // already applied by the former chunks of this message
+            existingVendorsToUpdate.removeIf(v -> v.getTs() == ets);
+        }
 
         // TODO all of those must have the same timestamp, as they have been set in a TX (the formerly given latestTimeStamp).
         //  only if the current latestTimeStamp is newer, go on and update
@@ -67,27 +95,13 @@ public class VendorListenerLogic {
         // 1 of the concurrent ones is the most recent. it is NOT SURE, that this one wins. but 1 of the concurrent ongoing ones wins.
         // problem we save out of date info. maybe due to issue in queue we get at the same time 2 messages for same rVID, which have been generated
         // actually seconds apart. here the older one might win.
-        // TODO only max 25 vendors per TX can be modified!!
-        TransactionWriteRequest transactionWriteRequest = new TransactionWriteRequest();
-        existingVendorsToDelete.forEach(transactionWriteRequest::addDelete);
-        existingVendorsToUpdate.forEach(v -> {
-            v.setTimestamp(latestTimeStamp);
-            // only update, if queue message is more recent
-            transactionWriteRequest.addUpdate(v,
-                    new DynamoDBTransactionWriteExpression().withConditionExpression("ts < " + latestTimeStamp)); // better use epoch seconds
-        });
+        // only max 25 items per TX, so the changes are split into multiple TXs, fenced per rVID (see ChunkedTransactionWriter).
+        existingVendorsToUpdate.forEach(v -> v.setTimestamp(latestTimeStamp));
         queueMessageVendorsToAdd.forEach(v -> {
-            // only add the platform vendor, if not yet existing for another rVID
             v.setTimestamp(latestTimeStamp); // TODO convert the queue message vendor to dynamo db vendor
             v.setRpsId(rVID);
-            transactionWriteRequest.addPut(v,
-                    new DynamoDBTransactionWriteExpression().withConditionExpression("attribute_not_exists(pVIDgK)"));
         });
-        mapper.transactionWrite(transactionWriteRequest);
-
-        // TODO if a TransactionCanceledException happens then a condition was not met. either latestTimeStamp is out of date
-        //  or the platform vendor already exists for some other rps vendor. do not retry for both. only retry, if the TX was
-        //  cancelled due to concurrent TX.
-        // TODO think the retry through!
+        transactionWriter.write(rVID, latestTimeStamp, resuming ? fence.getChunksApplied() : 0,
+                queueMessageVendorsToAdd, existingVendorsToUpdate, existingVendorsToDelete);
     }
 }
@@ -0,0 +1,213 @@
+package v6;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import testsupport.DynamoDBLocalExtension;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VendorTest {
+
+    // the fences are stored in the vendor table as well
+    @RegisterExtension
+    static final DynamoDBLocalExtension dynamoDB = new DynamoDBLocalExtension(Vendor.class);
+
+    private static AmazonDynamoDB client;
+    private static DynamoDBMapper mapper;
+
+    @BeforeAll
+    public static void beforeAll() {
+        client = dynamoDB.getClient();
+        mapper = dynamoDB.newMapper();
+    }
+
+    @Test
+    public void testChunkedUpdateOfManyPlatformVendors() {
+
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client);
+        ChunkedTransactionWriter transactionWriter = new ChunkedTransactionWriter(mapper);
+
+        // 24 vendors and the fence per TX -> 3 TXs
+        Instant first = Instant.now();
+        vendorListenerLogic.update(vendors(0, 60, "1234", first), "1234", first);
+
+        VendorFence fence = transactionWriter.loadFence("1234");
+        assertEquals(first.toEpochMilli(), fence.getFenceTs());
+        assertEquals(3, fence.getChunksApplied());
+        assertEquals(3, fence.getChunksTotal());
+        for (int i = 0; i < 60; i++) {
+            Vendor vendor = mapper.load(Vendor.class, "pv" + i + "<<>>LH");
+            assertEquals(first.toEpochMilli(), vendor.getTs());
+            assertEquals("1234", vendor.getRpsId());
+        }
+
+        // pv0..pv29 removed, pv30..pv59 updated
+        Instant second = first.plusSeconds(1);
+        vendorListenerLogic.update(vendors(30, 60, "1234", second), "1234", second);
+
+        fence = transactionWriter.loadFence("1234");
+        assertEquals(second.toEpochMilli(), fence.getFenceTs());
+        assertTrue(fence.isComplete());
+        for (int i = 0; i < 60; i++) {
+            Vendor vendor = mapper.load(Vendor.class, "pv" + i + "<<>>LH");
+            if (i < 30) {
+                assertNull(vendor);
+            } else {
+                assertEquals(second.toEpochMilli(), vendor.getTs());
+            }
+        }
+    }
+
+    @Test
+    public void testVendorFence() {
+
+        // 2 vendors and the fence per TX
+        ChunkedTransactionWriter transactionWriter = new ChunkedTransactionWriter(mapper, 3);
+        assertNull(transactionWriter.loadFence("1234"));
+
+        Instant newer = Instant.now();
+        assertEquals(3, transactionWriter.write("1234", newer, 0, vendors(0, 5, "1234", newer), Set.of(), Set.of()));
+
+        VendorFence fence = transactionWriter.loadFence("1234");
+        assertEquals("1234", fence.getRpsId());
+        assertEquals(newer.toEpochMilli(), fence.getFenceTs());
+        assertEquals(3, fence.getChunksApplied());
+        assertEquals(3, fence.getChunksTotal());
+
+        // the first chunk of an older message is not applied
+        Instant older = newer.minusSeconds(1);
+        assertThrows(TransactionCanceledException.class, () -> transactionWriter.write("1234", older, 0,
+                Set.of(), Set.of(), vendors(0, 2, "1234", older)));
+        assertEquals(newer.toEpochMilli(), transactionWriter.loadFence("1234").getFenceTs());
+        assertEquals(5, vendorsOf("1234").size());
+    }
+
+    @Test
+    public void testOutdatedMessageIsSkipped() {
+
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client);
+
+        Instant now = Instant.now();
+        vendorListenerLogic.update(vendors(0, 2, "1234", now), "1234", now);
+
+        // older than the fence: nothing read or written
+        Instant past = now.minusSeconds(1);
+        vendorListenerLogic.update(vendors(0, 1, "1234", past), "1234", past);
+        assertEquals(2, vendorsOf("1234").size());
+
+        // platform vendor existing for another rVID: the TX is cancelled and not retried
+        vendorListenerLogic.update(vendors(0, 1, "5678", now), "5678", now);
+        assertEquals("1234", mapper.load(Vendor.class, "pv0<<>>LH").getRpsId());
+        assertEquals(1, vendorListenerLogic.getRetryMetrics().getConditionsFailed());
+        assertEquals(3, vendorListenerLogic.getRetryMetrics().getMessagesWithAttempts(1));
+    }
+
+    @Test
+    public void testTimestampsCompareAsNumbers() {
+
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client);
+
+        // as ISO strings "...:00Z" sorts after "...:00.500Z"
+        Instant wholeSecond = Instant.parse("2021-01-01T00:00:00Z");
+        Instant halfSecondLater = Instant.parse("2021-01-01T00:00:00.500Z");
+        vendorListenerLogic.update(vendors(0, 1, "1234", wholeSecond), "1234", wholeSecond);
+        vendorListenerLogic.update(vendors(0, 1, "1234", halfSecondLater), "1234", halfSecondLater);
+
+        assertEquals(halfSecondLater.toEpochMilli(), mapper.load(Vendor.class, "pv0<<>>LH").getTs());
+        assertEquals(0, vendorListenerLogic.getRetryMetrics().getConditionsFailed());
+    }
+
+    @Test
+    public void testResumeAfterPartialFailure() {
+
+        AmazonDynamoDB failingClient = clientFailingOnTransaction(2);
+        try {
+            // the second of 3 TXs fails, e.g. the listener died in between
+            Instant now = Instant.now();
+            VendorListenerLogic failingListenerLogic = new VendorListenerLogic(failingClient);
+            assertThrows(SdkClientException.class,
+                    () -> failingListenerLogic.update(vendors(0, 60, "1234", now), "1234", now));
+            assertThrows(SdkClientException.class,
+                    () -> failingListenerLogic.update(vendors(100, 160, "5678", now), "5678", now));
+
+            ChunkedTransactionWriter transactionWriter = new ChunkedTransactionWriter(mapper);
+            VendorFence fence = transactionWriter.loadFence("1234");
+            assertEquals(1, fence.getChunksApplied());
+            assertEquals(3, fence.getChunksTotal());
+            assertEquals(24, vendorsOf("1234").size());
+
+            // redelivered message: resumed from the second chunk
+            new VendorListenerLogic(client).update(vendors(0, 60, "1234", now), "1234", now);
+            assertTrue(transactionWriter.loadFence("1234").isComplete());
+            assertEquals(60, vendorsOf("1234").size());
+
+            // resumed with a GSI read not showing the vendors of the first chunk yet: they are put again
+            fence = transactionWriter.loadFence("5678");
+            assertEquals(1, fence.getChunksApplied());
+            transactionWriter.write("5678", now, fence.getChunksApplied(),
+                    vendors(100, 160, "5678", now), Set.of(), Set.of());
+            assertTrue(transactionWriter.loadFence("5678").isComplete());
+            assertEquals(60, vendorsOf("5678").size());
+        } finally {
+            failingClient.shutdown();
+        }
+    }
+
+    // fails the n-th TransactWriteItems request (1 based) before it is sent
+    private static AmazonDynamoDB clientFailingOnTransaction(int n) {
+        AtomicInteger transactions = new AtomicInteger();
+        return AmazonDynamoDBClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(dynamoDB.getEndpointConfiguration())
+                .withRequestHandlers(new RequestHandler2() {
+                    @Override
+                    public AmazonWebServiceRequest beforeExecution(AmazonWebServiceRequest request) {
+                        if (request instanceof TransactWriteItemsRequest && transactions.incrementAndGet() % n == 0) {
+                            throw new SdkClientException("injected failure");
+                        }
+                        return request;
+                    }
+                })
+                .build();
+    }
+
+    // pv<from> .. pv<to - 1>
+    private static Set<Vendor> vendors(int from, int to, String rVID, Instant timestamp) {
+        Set<Vendor> vendors = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            vendors.add(new Vendor("pv" + i, "LH", rVID, timestamp, "config " + timestamp));
+        }
+        return vendors;
+    }
+
+    private static List<Vendor> vendorsOf(String rVID) {
+        return mapper.query(Vendor.class, new DynamoDBQueryExpression<Vendor>()
+                .withIndexName("rVIDGsi")
+                .withConsistentRead(false)
+                .withKeyConditionExpression("rVID = :rVID")
+                .withExpressionAttributeValues(Map.of(":rVID", new AttributeValue(rVID))));
+    }
+}
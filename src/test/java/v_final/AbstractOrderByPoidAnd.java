@@ -10,11 +10,15 @@ import java.time.Instant;
 @DynamoDBDocument
 public abstract class AbstractOrderByPoidAnd {
 
+    // written as 1 on a slim guard (see OrderStore), not written at all on a full item
+    public static final String SLIM_GUARD_ATTRIBUTE = "sG";
+
     protected String platformOrderId;
     protected String globalEntityId;
     protected String globalKey;
     protected String orderJsonVersion;
     protected Instant cleanupAfter;
+    protected Boolean slimGuard;
 
     public AbstractOrderByPoidAnd(String platformOrderId, String globalEntityId, String globalKey, String orderJsonVersion, Instant cleanupAfter) {
         this.platformOrderId = platformOrderId;
@@ -72,6 +76,24 @@ public abstract class AbstractOrderByPoidAnd {
         this.cleanupAfter = cleanupAfter;
     }
 
+    @DynamoDBAttribute(attributeName = SLIM_GUARD_ATTRIBUTE)
+    public Boolean getSlimGuard() {
+        return slimGuard;
+    }
+
+    public void setSlimGuard(Boolean slimGuard) {
+        this.slimGuard = slimGuard;
+    }
+
+    /*
+    a slim guard item (see OrderStore), the order has to be loaded via gEID. checks the marker, not a missing oJV: an
+    order may be without oJV, and OrderUpdates sets oJV on the guard as well.
+     */
+    @DynamoDBIgnore
+    public boolean isGuardOnly() {
+        return Boolean.TRUE.equals(slimGuard);
+    }
+
     // https://docs.aws.amazon.com/AWSJavaSDK/latest/javadoc/com/amazonaws/services/dynamodbv2/AmazonDynamoDBClient.html#updateTimeToLive-com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest-
     @DynamoDBAttribute(attributeName = "ttl")
     public long getTtl() {
@@ -0,0 +1,77 @@
+package v_final;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/*
+conditional puts via the async client, so no listener thread is blocked per request. the mapper is only used to convert
+the vendor to its item. at most `maxInFlight` puts are sent at the same time, further calls block the calling thread.
+
+the whole item is put (no update of single attributes like the mapper does), which is the same here, as all attributes
+of the vendor are modelled.
+ */
+public class AsyncConditionalWriteExecutor implements ConditionalWriteExecutor {
+
+    private final AmazonDynamoDBAsync asyncClient;
+    private final DynamoDBMapperTableModel<Vendor> tableModel;
+    private final Semaphore inFlight;
+
+    public AsyncConditionalWriteExecutor(AmazonDynamoDBAsync asyncClient, DynamoDBMapper mapper, int maxInFlight) {
+        this.asyncClient = asyncClient;
+        this.tableModel = mapper.getTableModel(Vendor.class);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<WriteOutcome> save(Vendor vendor, DynamoDBSaveExpression saveExpression) {
+
+        PutItemRequest putItemRequest = new PutItemRequest()
+                .withTableName(Vendor.TABLE_NAME)
+                .withItem(tableModel.convert(vendor))
+                .withExpected(saveExpression.getExpected())
+                .withConditionalOperator(saveExpression.getConditionalOperator());
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<WriteOutcome> outcome = new CompletableFuture<>();
+        try {
+            asyncClient.putItemAsync(putItemRequest, new AsyncHandler<PutItemRequest, PutItemResult>() {
+
+                @Override
+                public void onError(Exception exception) {
+                    inFlight.release();
+                    if (exception instanceof ConditionalCheckFailedException) {
+                        // queue message outdated
+                        outcome.complete(WriteOutcome.OUTDATED);
+                    } else {
+                        outcome.completeExceptionally(exception);
+                    }
+                }
+
+                @Override
+                public void onSuccess(PutItemRequest request, PutItemResult result) {
+                    inFlight.release();
+                    outcome.complete(WriteOutcome.WRITTEN);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            outcome.completeExceptionally(e);
+        }
+        return outcome;
+    }
+}
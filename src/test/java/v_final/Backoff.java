@@ -0,0 +1,26 @@
+package v_final;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+"full jitter" backoff of the retries of unprocessed keys or items: sleep a random time up to the exponentially growing
+backoff (base, 2 * base, 4 * base, ...).
+https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+ */
+public final class Backoff {
+
+    private Backoff() {
+    }
+
+    // attempt: 1 for the first retry. false, if interrupted (the interrupt flag is set again)
+    public static boolean sleep(long baseBackoffMillis, int attempt) {
+        long maxBackoff = baseBackoffMillis << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxBackoff + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/*
+blocking mapper saves on the given executor (e.g. a fixed thread pool). at most `maxInFlight` saves are running or
+queued at the same time, further calls block the calling (listener) thread until a save has finished.
+ */
+public class BoundedConditionalWriteExecutor implements ConditionalWriteExecutor {
+
+    private final DynamoDBMapper mapper;
+    private final Executor executor;
+    private final Semaphore inFlight;
+
+    public BoundedConditionalWriteExecutor(DynamoDBMapper mapper, Executor executor, int maxInFlight) {
+        this.mapper = mapper;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<WriteOutcome> save(Vendor vendor, DynamoDBSaveExpression saveExpression) {
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    // if not existing, insert. if existing, update.
+                    mapper.save(vendor, saveExpression);
+                    return WriteOutcome.WRITTEN;
+                } catch (ConditionalCheckFailedException e) {
+                    // queue message outdated
+                    return WriteOutcome.OUTDATED;
+                } finally {
+                    inFlight.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
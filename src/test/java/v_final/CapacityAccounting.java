@@ -0,0 +1,333 @@
+package v_final;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+measures the costs instead of estimating them (see "Costs" in the README): the request handler sends every item
+operation with ReturnConsumedCapacity=INDEXES (INDEXES includes the total of TOTAL), on a copy of the request, the
+request of the caller is not modified. the consumed units are summed up
+- per table
+- per GSI, as "table.index" (e.g. "vendor.rVIDGsi")
+- per logical operation, as set by the caller for the requests of a call via `withOperation` (e.g. "order insert",
+  "vendor reconcile"), "other" if none
+
+add it to the client builder via `withRequestHandlers(capacityAccounting.requestHandler())`, so all requests of the
+client are measured, the ones of the mapper and of the async client as well. the operation is taken from the thread
+calling the client. the async client calls the request handler on that thread as well, before it sends on its own
+threads.
+
+units of a TX are counted separately, they are 2 per item (read: 4KB, write: 1KB) already. so the monthly cost (on
+demand, default prices of eu-west-1) is the units per call of an operation times the calls per month times the price.
+ */
+public class CapacityAccounting {
+
+    public static final String OTHER_OPERATION = "other";
+
+    private final Map<String, Usage> usageByTable = new ConcurrentHashMap<>();
+    private final Map<String, Usage> usageByIndex = new ConcurrentHashMap<>();
+    private final Map<String, Usage> usageByOperation = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentOperation = new ThreadLocal<>();
+    // the operation of a request sent, until its response (or error) arrives
+    private final Map<AmazonWebServiceRequest, String> operationsByRequest =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private double pricePerMillionReadUnits = 0.283;
+    private double pricePerMillionWriteUnits = 1.4135;
+
+    public CapacityAccounting withPricePerMillionReadUnits(double pricePerMillionReadUnits) {
+        this.pricePerMillionReadUnits = pricePerMillionReadUnits;
+        return this;
+    }
+
+    public CapacityAccounting withPricePerMillionWriteUnits(double pricePerMillionWriteUnits) {
+        this.pricePerMillionWriteUnits = pricePerMillionWriteUnits;
+        return this;
+    }
+
+    // the requests sent by `call` on this thread are accounted to `operation`, which counts 1 call
+    public <T> T withOperation(String operation, Supplier<T> call) {
+        String outer = currentOperation.get();
+        currentOperation.set(operation);
+        usage(usageByOperation, operation).calls.increment();
+        try {
+            return call.get();
+        } finally {
+            if (outer == null) {
+                currentOperation.remove();
+            } else {
+                currentOperation.set(outer);
+            }
+        }
+    }
+
+    public void withOperation(String operation, Runnable call) {
+        withOperation(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    // usage by table name, the tables without any request are missing
+    public Map<String, Usage> getUsageByTable() {
+        return Collections.unmodifiableMap(usageByTable);
+    }
+
+    // usage by "table.index"
+    public Map<String, Usage> getUsageByIndex() {
+        return Collections.unmodifiableMap(usageByIndex);
+    }
+
+    // usage by logical operation
+    public Map<String, Usage> getUsageByOperation() {
+        return Collections.unmodifiableMap(usageByOperation);
+    }
+
+    public double costOf(Usage usage) {
+        return (usage.getReadUnits() + usage.getTransactionalReadUnits()) * pricePerMillionReadUnits / 1_000_000
+                + (usage.getWriteUnits() + usage.getTransactionalWriteUnits()) * pricePerMillionWriteUnits / 1_000_000;
+    }
+
+    // the cost of the operation so far, scaled to the calls per month. 0, if not called yet
+    public double projectMonthlyCost(String operation, long callsPerMonth) {
+        Usage usage = usageByOperation.get(operation);
+        if (usage == null || usage.getCalls() == 0) {
+            return 0;
+        }
+        return costOf(usage) / usage.getCalls() * callsPerMonth;
+    }
+
+    public void reset() {
+        usageByTable.clear();
+        usageByIndex.clear();
+        usageByOperation.clear();
+    }
+
+    public RequestHandler2 requestHandler() {
+        return new RequestHandler2() {
+
+            @Override
+            public AmazonWebServiceRequest beforeExecution(AmazonWebServiceRequest request) {
+                AmazonWebServiceRequest accounted = withConsumedCapacity(request);
+                if (accounted == null) {
+                    // no item operation
+                    return request;
+                }
+                String operation = currentOperation.get();
+                operationsByRequest.put(accounted, operation != null ? operation : OTHER_OPERATION);
+                return accounted;
+            }
+
+            @Override
+            public void afterResponse(Request<?> request, Response<?> response) {
+                String operation = operationsByRequest.remove(request.getOriginalRequest());
+                if (operation != null) {
+                    account(operation, response.getAwsResponse());
+                }
+            }
+
+            // note: a cancelled TX consumes units as well, but the exception does not report them
+            @Override
+            public void afterError(Request<?> request, Response<?> response, Exception e) {
+                operationsByRequest.remove(request.getOriginalRequest());
+            }
+        };
+    }
+
+    // a copy of the request with ReturnConsumedCapacity=INDEXES, null if not an item operation
+    private static AmazonWebServiceRequest withConsumedCapacity(AmazonWebServiceRequest request) {
+        if (request instanceof GetItemRequest) {
+            return ((GetItemRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof PutItemRequest) {
+            return ((PutItemRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof UpdateItemRequest) {
+            return ((UpdateItemRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof DeleteItemRequest) {
+            return ((DeleteItemRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof QueryRequest) {
+            return ((QueryRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof ScanRequest) {
+            return ((ScanRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof BatchGetItemRequest) {
+            return ((BatchGetItemRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof BatchWriteItemRequest) {
+            return ((BatchWriteItemRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof TransactGetItemsRequest) {
+            return ((TransactGetItemsRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        if (request instanceof TransactWriteItemsRequest) {
+            return ((TransactWriteItemsRequest) request).clone().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+        }
+        return null;
+    }
+
+    private void account(String operation, Object result) {
+        if (result instanceof GetItemResult) {
+            account(operation, ((GetItemResult) result).getConsumedCapacity(), Kind.READ);
+        } else if (result instanceof PutItemResult) {
+            account(operation, ((PutItemResult) result).getConsumedCapacity(), Kind.WRITE);
+        } else if (result instanceof UpdateItemResult) {
+            account(operation, ((UpdateItemResult) result).getConsumedCapacity(), Kind.WRITE);
+        } else if (result instanceof DeleteItemResult) {
+            account(operation, ((DeleteItemResult) result).getConsumedCapacity(), Kind.WRITE);
+        } else if (result instanceof QueryResult) {
+            account(operation, ((QueryResult) result).getConsumedCapacity(), Kind.READ);
+        } else if (result instanceof ScanResult) {
+            account(operation, ((ScanResult) result).getConsumedCapacity(), Kind.READ);
+        } else if (result instanceof BatchGetItemResult) {
+            account(operation, ((BatchGetItemResult) result).getConsumedCapacity(), Kind.READ);
+        } else if (result instanceof BatchWriteItemResult) {
+            account(operation, ((BatchWriteItemResult) result).getConsumedCapacity(), Kind.WRITE);
+        } else if (result instanceof TransactGetItemsResult) {
+            account(operation, ((TransactGetItemsResult) result).getConsumedCapacity(), Kind.TRANSACTIONAL_READ);
+        } else if (result instanceof TransactWriteItemsResult) {
+            account(operation, ((TransactWriteItemsResult) result).getConsumedCapacity(), Kind.TRANSACTIONAL_WRITE);
+        }
+    }
+
+    private void account(String operation, ConsumedCapacity consumedCapacity, Kind kind) {
+        if (consumedCapacity != null) {
+            account(operation, List.of(consumedCapacity), kind);
+        }
+    }
+
+    private void account(String operation, List<ConsumedCapacity> consumedCapacities, Kind kind) {
+        if (consumedCapacities == null) {
+            return;
+        }
+        Usage operationUsage = usage(usageByOperation, operation);
+        for (ConsumedCapacity consumedCapacity : consumedCapacities) {
+            double total = unitsOf(consumedCapacity.getCapacityUnits());
+            operationUsage.add(kind, total);
+
+            double indexes = 0;
+            if (consumedCapacity.getGlobalSecondaryIndexes() != null) {
+                for (Map.Entry<String, Capacity> index : consumedCapacity.getGlobalSecondaryIndexes().entrySet()) {
+                    double units = unitsOf(index.getValue().getCapacityUnits());
+                    usage(usageByIndex, consumedCapacity.getTableName() + "." + index.getKey()).add(kind, units);
+                    indexes += units;
+                }
+            }
+            // the table part, without the GSIs (if not reported, the rest of the total)
+            double table = consumedCapacity.getTable() != null ? unitsOf(consumedCapacity.getTable().getCapacityUnits())
+                    : total - indexes;
+            usage(usageByTable, consumedCapacity.getTableName()).add(kind, table);
+        }
+    }
+
+    private static double unitsOf(Double capacityUnits) {
+        return capacityUnits == null ? 0 : capacityUnits;
+    }
+
+    private static Usage usage(Map<String, Usage> usages, String key) {
+        return usages.computeIfAbsent(key, k -> new Usage());
+    }
+
+    private enum Kind {
+        READ,
+        WRITE,
+        TRANSACTIONAL_READ,
+        TRANSACTIONAL_WRITE
+    }
+
+    // consumed units (and calls, for an operation), updated concurrently
+    public static class Usage {
+
+        private final LongAdder calls = new LongAdder();
+        private final DoubleAdder readUnits = new DoubleAdder();
+        private final DoubleAdder writeUnits = new DoubleAdder();
+        private final DoubleAdder transactionalReadUnits = new DoubleAdder();
+        private final DoubleAdder transactionalWriteUnits = new DoubleAdder();
+
+        private void add(Kind kind, double units) {
+            switch (kind) {
+                case READ:
+                    readUnits.add(units);
+                    break;
+                case WRITE:
+                    writeUnits.add(units);
+                    break;
+                case TRANSACTIONAL_READ:
+                    transactionalReadUnits.add(units);
+                    break;
+                case TRANSACTIONAL_WRITE:
+                    transactionalWriteUnits.add(units);
+                    break;
+            }
+        }
+
+        // calls of `withOperation`, 0 for tables and GSIs
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public double getReadUnits() {
+            return readUnits.sum();
+        }
+
+        public double getWriteUnits() {
+            return writeUnits.sum();
+        }
+
+        public double getTransactionalReadUnits() {
+            return transactionalReadUnits.sum();
+        }
+
+        public double getTransactionalWriteUnits() {
+            return transactionalWriteUnits.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Usage{" +
+                    "calls=" + getCalls() +
+                    ", readUnits=" + getReadUnits() +
+                    ", writeUnits=" + getWriteUnits() +
+                    ", transactionalReadUnits=" + getTransactionalReadUnits() +
+                    ", transactionalWriteUnits=" + getTransactionalWriteUnits() +
+                    '}';
+        }
+    }
+}
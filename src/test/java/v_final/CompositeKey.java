@@ -0,0 +1,127 @@
+package v_final;
+
+/*
+hash keys of 2 parts, e.g. "<pOID><<>><gEID>", without String.split (which compiles the regex for the 4 char delimiter
+on every call) and with escaping, so the delimiter may be used within the parts.
+
+escaping: '\' -> "\\" and '<' -> "\<". parts without '\' and '<' (all of our IDs so far) are encoded the same as by
+plain concatenation, so the keys existing in the tables stay valid. as each '<' of a part is escaped, the first
+unescaped '<' of a key is the start of the delimiter.
+
+the encoded key of an entity is cached by a CompositeKey.Cache, until one of its parts is replaced.
+ */
+public final class CompositeKey {
+
+    public static final String DELIMITER = "<<>>";
+
+    private static final char ESCAPE = '\\';
+
+    private CompositeKey() {
+    }
+
+    public static String encode(String left, String right) {
+        left = String.valueOf(left);
+        right = String.valueOf(right);
+        if (!needsEscaping(left) && !needsEscaping(right)) {
+            return left + DELIMITER + right;
+        }
+        StringBuilder key = new StringBuilder(left.length() + DELIMITER.length() + right.length() + 8);
+        escape(left, key);
+        key.append(DELIMITER);
+        escape(right, key);
+        return key.toString();
+    }
+
+    public static String left(String key) {
+        int delimiter = delimiterIndexOf(key);
+        return unescape(key, 0, delimiter);
+    }
+
+    public static String right(String key) {
+        int delimiter = delimiterIndexOf(key);
+        return unescape(key, delimiter + DELIMITER.length(), key.length());
+    }
+
+    private static int delimiterIndexOf(String key) {
+        int delimiter;
+        if (key.indexOf(ESCAPE) < 0) {
+            delimiter = key.indexOf(DELIMITER);
+        } else {
+            delimiter = -1;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (c == ESCAPE) {
+                    i++;
+                } else if (c == '<' && key.startsWith(DELIMITER, i)) {
+                    delimiter = i;
+                    break;
+                }
+            }
+        }
+        if (delimiter < 0) {
+            throw new IllegalArgumentException("no composite key: " + key);
+        }
+        return delimiter;
+    }
+
+    private static boolean needsEscaping(String part) {
+        return part.indexOf(ESCAPE) >= 0 || part.indexOf('<') >= 0;
+    }
+
+    private static void escape(String part, StringBuilder key) {
+        for (int i = 0; i < part.length(); i++) {
+            char c = part.charAt(i);
+            if (c == ESCAPE || c == '<') {
+                key.append(ESCAPE);
+            }
+            key.append(c);
+        }
+    }
+
+    private static String unescape(String key, int from, int to) {
+        int escape = key.indexOf(ESCAPE, from);
+        if (escape < 0 || escape >= to) {
+            return key.substring(from, to);
+        }
+        StringBuilder part = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = key.charAt(i);
+            if (c == ESCAPE && i + 1 < to) {
+                c = key.charAt(++i);
+            }
+            part.append(c);
+        }
+        return part.toString();
+    }
+
+    /*
+    the encoded key of the last parts. recomputed only, if a part has been replaced (compared by reference, so no
+    string comparison per call). not synchronized, the encoded key is published together with its parts.
+     */
+    public static final class Cache {
+
+        private Encoded last;
+
+        public String get(String left, String right) {
+            Encoded encoded = last;
+            if (encoded == null || encoded.left != left || encoded.right != right) {
+                encoded = new Encoded(left, right, encode(left, right));
+                last = encoded;
+            }
+            return encoded.key;
+        }
+
+        private static final class Encoded {
+
+            private final String left;
+            private final String right;
+            private final String key;
+
+            Encoded(String left, String right, String key) {
+                this.left = left;
+                this.right = right;
+                this.key = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package v_final;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+the former concatenation and String.split("<<>>") against CompositeKey, over 1 million keys (ns per key).
+
+- encode/decode: building and parsing keys, as on every write/hydration by the mapper.
+- getHashKey: the repeated calls on the same vendors (e.g. while diffing), recomputed vs cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompositeKeyBenchmark {
+
+    private static final int KEYS = 1_000_000;
+
+    private String[] platformIds;
+    private String[] globalKeys;
+    private String[] hashKeys;
+    private Vendor[] vendors;
+
+    @Setup
+    public void setup() {
+        platformIds = new String[KEYS];
+        globalKeys = new String[KEYS];
+        hashKeys = new String[KEYS];
+        vendors = new Vendor[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            platformIds[i] = "pv" + i;
+            globalKeys[i] = i % 2 == 0 ? "LH" : "PY_AR";
+            hashKeys[i] = platformIds[i] + "<<>>" + globalKeys[i];
+            vendors[i] = new Vendor(platformIds[i], globalKeys[i], "1234", null, "config");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void concatenate(Blackhole blackhole) {
+        for (int i = 0; i < KEYS; i++) {
+            blackhole.consume(platformIds[i] + "<<>>" + globalKeys[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void encode(Blackhole blackhole) {
+        for (int i = 0; i < KEYS; i++) {
+            blackhole.consume(CompositeKey.encode(platformIds[i], globalKeys[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void split(Blackhole blackhole) {
+        for (int i = 0; i < KEYS; i++) {
+            String[] parts = hashKeys[i].split("<<>>");
+            blackhole.consume(parts[0]);
+            blackhole.consume(parts[1]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void decode(Blackhole blackhole) {
+        for (int i = 0; i < KEYS; i++) {
+            blackhole.consume(CompositeKey.left(hashKeys[i]));
+            blackhole.consume(CompositeKey.right(hashKeys[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void getHashKeyRecomputed(Blackhole blackhole) {
+        for (int i = 0; i < KEYS; i++) {
+            blackhole.consume(vendors[i].getPlatformId() + "<<>>" + vendors[i].getGlobalKey());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void getHashKeyCached(Blackhole blackhole) {
+        for (int i = 0; i < KEYS; i++) {
+            blackhole.consume(vendors[i].getHashKey());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CompositeKeyBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
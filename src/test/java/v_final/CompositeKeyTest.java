@@ -0,0 +1,49 @@
+package v_final;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompositeKeyTest {
+
+    @Test
+    public void testSameAsConcatenationWithoutSpecialChars() {
+        assertEquals("1234<<>>PY_AR", CompositeKey.encode("1234", "PY_AR"));
+        assertEquals("1234", CompositeKey.left("1234<<>>PY_AR"));
+        assertEquals("PY_AR", CompositeKey.right("1234<<>>PY_AR"));
+    }
+
+    @Test
+    public void testEscaping() {
+        String[][] parts = {
+                {"a<<>>b", "c"},
+                {"a", "<<>>"},
+                {"a<", "<>>b"},
+                {"a\\", "b\\<<>>"},
+                {"", ""},
+        };
+        for (String[] leftAndRight : parts) {
+            String key = CompositeKey.encode(leftAndRight[0], leftAndRight[1]);
+            assertEquals(leftAndRight[0], CompositeKey.left(key), key);
+            assertEquals(leftAndRight[1], CompositeKey.right(key), key);
+        }
+        assertThrows(IllegalArgumentException.class, () -> CompositeKey.left("1234"));
+    }
+
+    @Test
+    public void testCache() {
+
+        OrderByPoidGeid order = new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", null);
+        String hashKey = order.getHashKey();
+        assertSame(hashKey, order.getHashKey());
+
+        order.setGlobalEntityId("FOO");
+        assertEquals("1234<<>>FOO", order.getHashKey());
+
+        order.setHashKey("5678<<>>PY_AR");
+        assertEquals("5678", order.getPlatformOrderId());
+        assertEquals("5678<<>>PY_AR", order.getHashKey());
+    }
+}
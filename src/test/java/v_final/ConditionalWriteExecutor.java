@@ -0,0 +1,22 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+issues the timestamp guarded saves of the vendor listener. these can not be batched (BatchWriteItem has no conditions),
+but they are independent per hash key (pVIDgK), so they may run concurrently.
+
+a failed condition is not an error, but the outcome OUTDATED. any other error completes the future exceptionally.
+ */
+public interface ConditionalWriteExecutor {
+
+    CompletableFuture<WriteOutcome> save(Vendor vendor, DynamoDBSaveExpression saveExpression);
+
+    // saves on the calling thread, one after the other
+    static ConditionalWriteExecutor sameThread(DynamoDBMapper mapper) {
+        return new BoundedConditionalWriteExecutor(mapper, Runnable::run, 1);
+    }
+}
@@ -0,0 +1,109 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import testsupport.DynamoDBLocalServer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+DynamoDBMapperTableModel.convert/unconvert against the hand written EntityCodecs, for the vendor and the order items
+(ns per entity). run with the GC profiler, so the allocated bytes per operation (gc.alloc.rate.norm) are reported
+as well.
+
+no DynamoDB needed, the mapper only converts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityCodecBenchmark {
+
+    private DynamoDBMapperTableModel<Vendor> vendorModel;
+    private DynamoDBMapperTableModel<OrderByPoidGeid> orderModel;
+
+    private Vendor vendor;
+    private OrderByPoidGeid order;
+    private Map<String, AttributeValue> vendorItem;
+    private Map<String, AttributeValue> orderItem;
+
+    @Setup
+    public void setup() {
+        // only converts, no DynamoDB needed
+        DynamoDBMapper mapper = new DynamoDBMapper(DynamoDBLocalServer.unusedClient());
+        vendorModel = mapper.getTableModel(Vendor.class);
+        orderModel = mapper.getTableModel(OrderByPoidGeid.class);
+
+        vendor = new Vendor("pv1", "LH", "1234", Instant.now(), "{\"some\": \"config\"}");
+        order = new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)));
+        vendorItem = vendorModel.convert(vendor);
+        orderItem = orderModel.convert(order);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> mapperConvertVendor() {
+        return vendorModel.convert(vendor);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> codecEncodeVendor() {
+        return EntityCodecs.VENDOR.encode(vendor);
+    }
+
+    @Benchmark
+    public Vendor mapperUnconvertVendor() {
+        return vendorModel.unconvert(vendorItem);
+    }
+
+    @Benchmark
+    public Vendor codecDecodeVendor() {
+        return EntityCodecs.VENDOR.decode(vendorItem);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> mapperConvertOrder() {
+        return orderModel.convert(order);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> codecEncodeOrder() {
+        return EntityCodecs.ORDER_BY_POID_GEID.encode(order);
+    }
+
+    @Benchmark
+    public OrderByPoidGeid mapperUnconvertOrder() {
+        return orderModel.unconvert(orderItem);
+    }
+
+    @Benchmark
+    public OrderByPoidGeid codecDecodeOrder() {
+        return EntityCodecs.ORDER_BY_POID_GEID.decode(orderItem);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EntityCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,171 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+hand written item codecs of the v_final entities, an alternative to DynamoDBMapperTableModel.convert/unconvert: no
+reflection over the getters, no converter lookup per attribute, just the attributes of the entity. the items are the
+same as the mapper's (see EntityCodecsTest), so both can be used on the same tables.
+
+null attributes are not written, the same as by the mapper. see EntityCodecBenchmark for the comparison with the
+mapper. when adding an attribute to an entity, add it here as well.
+ */
+public final class EntityCodecs {
+
+    public static final ItemCodec<Vendor> VENDOR = new ItemCodec<Vendor>() {
+
+        @Override
+        public Map<String, AttributeValue> encode(Vendor vendor) {
+            Map<String, AttributeValue> item = newItem(6);
+            putS(item, "pVIDgK", vendor.getHashKey());
+            putS(item, "rVID", vendor.getRpsId());
+            putS(item, "config", vendor.getConfig());
+            putS(item, "isDeleted", vendor.isDeleted());
+            putS(item, "fp", vendor.getFingerprint());
+            item.put("ts", new AttributeValue().withN(Long.toString(vendor.getTs())));
+            return item;
+        }
+
+        @Override
+        public Vendor decode(Map<String, AttributeValue> item) {
+            Vendor vendor = new Vendor();
+            vendor.setHashKey(getS(item, "pVIDgK"));
+            vendor.setRpsId(getS(item, "rVID"));
+            vendor.setConfig(getS(item, "config"));
+            vendor.setDeleted(getS(item, "isDeleted"));
+            vendor.setFingerprint(getS(item, "fp"));
+            AttributeValue ts = item.get("ts");
+            if (ts != null) {
+                vendor.setTs(Long.parseLong(ts.getN()));
+            }
+            return vendor;
+        }
+    };
+
+    public static final ItemCodec<OrderByPoidGeid> ORDER_BY_POID_GEID = new ItemCodec<OrderByPoidGeid>() {
+
+        @Override
+        public Map<String, AttributeValue> encode(OrderByPoidGeid order) {
+            Map<String, AttributeValue> item = newItem(5);
+            putS(item, "pOIDgEID", order.getHashKey());
+            putS(item, "gK", order.getGlobalKey());
+            putOrderAttributes(item, order);
+            return item;
+        }
+
+        @Override
+        public OrderByPoidGeid decode(Map<String, AttributeValue> item) {
+            OrderByPoidGeid order = new OrderByPoidGeid();
+            order.setHashKey(getS(item, "pOIDgEID"));
+            order.setGlobalKey(getS(item, "gK"));
+            getOrderAttributes(item, order);
+            return order;
+        }
+    };
+
+    public static final ItemCodec<OrderByPoidGk> ORDER_BY_POID_GK = new ItemCodec<OrderByPoidGk>() {
+
+        @Override
+        public Map<String, AttributeValue> encode(OrderByPoidGk order) {
+            Map<String, AttributeValue> item = newItem(5);
+            putS(item, "pOIDgK", order.getHashKey());
+            putS(item, "gEID", order.getGlobalEntityId());
+            putOrderAttributes(item, order);
+            return item;
+        }
+
+        @Override
+        public OrderByPoidGk decode(Map<String, AttributeValue> item) {
+            OrderByPoidGk order = new OrderByPoidGk();
+            order.setHashKey(getS(item, "pOIDgK"));
+            order.setGlobalEntityId(getS(item, "gEID"));
+            getOrderAttributes(item, order);
+            return order;
+        }
+    };
+
+    public static final ItemCodec<OrderItem> ORDER_ITEM = new ItemCodec<OrderItem>() {
+
+        @Override
+        public Map<String, AttributeValue> encode(OrderItem order) {
+            Map<String, AttributeValue> item = newItem(6);
+            putS(item, "pk", order.getHashKey());
+            putS(item, "gEID", order.getGlobalEntityId());
+            putS(item, "gK", order.getGlobalKey());
+            putOrderAttributes(item, order);
+            return item;
+        }
+
+        @Override
+        public OrderItem decode(Map<String, AttributeValue> item) {
+            OrderItem order = new OrderItem();
+            order.setHashKey(getS(item, "pk"));
+            order.setGlobalEntityId(getS(item, "gEID"));
+            order.setGlobalKey(getS(item, "gK"));
+            getOrderAttributes(item, order);
+            return order;
+        }
+    };
+
+    private static final Map<Class<?>, ItemCodec<?>> CODECS = Map.of(
+            Vendor.class, VENDOR,
+            OrderByPoidGeid.class, ORDER_BY_POID_GEID,
+            OrderByPoidGk.class, ORDER_BY_POID_GK,
+            OrderItem.class, ORDER_ITEM);
+
+    private EntityCodecs() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ItemCodec<T> of(Class<T> entityClass) {
+        ItemCodec<T> codec = (ItemCodec<T>) CODECS.get(entityClass);
+        if (codec == null) {
+            throw new IllegalArgumentException("no codec registered for " + entityClass.getName());
+        }
+        return codec;
+    }
+
+    private static void putOrderAttributes(Map<String, AttributeValue> item, AbstractOrderByPoidAnd order) {
+        putS(item, "oJV", order.getOrderJsonVersion());
+        if (order.getCleanupAfter() != null) {
+            item.put("ttl", new AttributeValue().withN(Long.toString(order.getTtl())));
+        }
+        // a Boolean, as the mapper writes it: 1 or 0
+        if (order.getSlimGuard() != null) {
+            item.put(AbstractOrderByPoidAnd.SLIM_GUARD_ATTRIBUTE,
+                    new AttributeValue().withN(order.getSlimGuard() ? "1" : "0"));
+        }
+    }
+
+    private static void getOrderAttributes(Map<String, AttributeValue> item, AbstractOrderByPoidAnd order) {
+        order.setOrderJsonVersion(getS(item, "oJV"));
+        AttributeValue ttl = item.get("ttl");
+        if (ttl != null) {
+            order.setCleanupAfter(Instant.ofEpochSecond(Long.parseLong(ttl.getN())));
+        }
+        AttributeValue slimGuard = item.get(AbstractOrderByPoidAnd.SLIM_GUARD_ATTRIBUTE);
+        if (slimGuard != null) {
+            order.setSlimGuard("1".equals(slimGuard.getN()) || Boolean.TRUE.equals(slimGuard.getBOOL()));
+        }
+    }
+
+    // sized, so it is not resized while filled
+    private static Map<String, AttributeValue> newItem(int attributes) {
+        return new HashMap<>(attributes * 4 / 3 + 1);
+    }
+
+    private static void putS(Map<String, AttributeValue> item, String attributeName, String value) {
+        if (value != null) {
+            item.put(attributeName, new AttributeValue(value));
+        }
+    }
+
+    private static String getS(Map<String, AttributeValue> item, String attributeName) {
+        AttributeValue value = item.get(attributeName);
+        return value == null ? null : value.getS();
+    }
+}
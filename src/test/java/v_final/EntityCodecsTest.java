@@ -0,0 +1,105 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.jupiter.api.Test;
+import testsupport.DynamoDBLocalServer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the codecs must write the same items as the mapper (no DynamoDB needed, the mapper only converts)
+public class EntityCodecsTest {
+
+    private final DynamoDBMapper mapper = new DynamoDBMapper(DynamoDBLocalServer.unusedClient());
+
+    @Test
+    public void testVendor() {
+
+        Vendor vendor = new Vendor("pv1", "LH", "1234", Instant.now(), "config");
+        vendor.setDeleted("true");
+        DynamoDBMapperTableModel<Vendor> tableModel = mapper.getTableModel(Vendor.class);
+
+        assertEquals(tableModel.convert(vendor), EntityCodecs.VENDOR.encode(vendor));
+
+        Vendor decoded = EntityCodecs.VENDOR.decode(tableModel.convert(vendor));
+        assertEquals(vendor.getHashKey(), decoded.getHashKey());
+        assertEquals(vendor.getRpsId(), decoded.getRpsId());
+        assertEquals(vendor.getConfig(), decoded.getConfig());
+        assertEquals(vendor.isDeleted(), decoded.isDeleted());
+        assertEquals(vendor.getTs(), decoded.getTs());
+        assertEquals(vendor.getFingerprint(), decoded.getStoredFingerprint());
+    }
+
+    @Test
+    public void testOrders() {
+
+        Instant cleanupAfter = Instant.now().plus(Duration.ofDays(30));
+        OrderByPoidGeid orderByPoidGeid = new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", cleanupAfter);
+        OrderByPoidGk orderByPoidGk = new OrderByPoidGk("1234", "PY_AR", "PY", "grocery", cleanupAfter);
+        OrderItem orderItem = OrderItem.byPoidGk(orderByPoidGeid);
+
+        assertEquals(mapper.getTableModel(OrderByPoidGeid.class).convert(orderByPoidGeid),
+                EntityCodecs.ORDER_BY_POID_GEID.encode(orderByPoidGeid));
+        assertEquals(mapper.getTableModel(OrderByPoidGk.class).convert(orderByPoidGk),
+                EntityCodecs.ORDER_BY_POID_GK.encode(orderByPoidGk));
+        assertEquals(mapper.getTableModel(OrderItem.class).convert(orderItem),
+                EntityCodecs.ORDER_ITEM.encode(orderItem));
+
+        OrderByPoidGk decoded = EntityCodecs.ORDER_BY_POID_GK.decode(EntityCodecs.ORDER_BY_POID_GK.encode(orderByPoidGk));
+        assertEquals("1234", decoded.getPlatformOrderId());
+        assertEquals("PY_AR", decoded.getGlobalEntityId());
+        assertEquals("PY", decoded.getGlobalKey());
+        assertEquals("grocery", decoded.getOrderJsonVersion());
+        assertEquals(cleanupAfter.truncatedTo(ChronoUnit.SECONDS), decoded.getCleanupAfter());
+
+        OrderItem decodedItem = EntityCodecs.ORDER_ITEM.decode(EntityCodecs.ORDER_ITEM.encode(orderItem));
+        assertEquals(OrderItem.GK_PREFIX, decodedItem.getGuard());
+        assertEquals("PY_AR", decodedItem.getGlobalEntityId());
+        assertFalse(decodedItem.isGuardOnly());
+    }
+
+    @Test
+    public void testSlimGuards() {
+
+        Instant cleanupAfter = Instant.now().plus(Duration.ofDays(30));
+        OrderByPoidGk orderByPoidGk = new OrderByPoidGk("1234", "PY_AR", "PY", "grocery", cleanupAfter);
+        OrderItem orderItem = OrderItem.byPoidGk(orderByPoidGk);
+
+        // as written by OrderStore
+        Map<String, AttributeValue> guard = OrderStore.slimGuardOf(
+                mapper.getTableModel(OrderByPoidGk.class).convert(orderByPoidGk), OrderByPoidGk.GUARD_ATTRIBUTES);
+        OrderByPoidGk decoded = EntityCodecs.ORDER_BY_POID_GK.decode(guard);
+        assertTrue(decoded.isGuardOnly());
+        assertEquals("PY_AR", decoded.getGlobalEntityId());
+        assertNull(decoded.getOrderJsonVersion());
+        assertEquals(guard, EntityCodecs.ORDER_BY_POID_GK.encode(decoded));
+        assertEquals(mapper.getTableModel(OrderByPoidGk.class).convert(decoded), EntityCodecs.ORDER_BY_POID_GK.encode(decoded));
+
+        Map<String, AttributeValue> itemGuard = OrderStore.slimGuardOf(
+                mapper.getTableModel(OrderItem.class).convert(orderItem), OrderItem.GUARD_ATTRIBUTES);
+        OrderItem decodedItem = EntityCodecs.ORDER_ITEM.decode(itemGuard);
+        assertTrue(decodedItem.isGuardOnly());
+        assertEquals(OrderItem.GK_PREFIX, decodedItem.getGuard());
+        // gK is part of the key, so it is written again
+        assertEquals(new AttributeValue().withN("1"),
+                EntityCodecs.ORDER_ITEM.encode(decodedItem).get(AbstractOrderByPoidAnd.SLIM_GUARD_ATTRIBUTE));
+        assertEquals(mapper.getTableModel(OrderItem.class).convert(decodedItem), EntityCodecs.ORDER_ITEM.encode(decodedItem));
+    }
+
+    @Test
+    public void testRegistry() {
+        assertSame(EntityCodecs.VENDOR, EntityCodecs.of(Vendor.class));
+        assertThrows(IllegalArgumentException.class, () -> EntityCodecs.of(String.class));
+    }
+}
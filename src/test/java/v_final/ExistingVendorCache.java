@@ -0,0 +1,140 @@
+package v_final;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+rVID -> vendors existing in table for the rVID (the result of the rVIDGsi query), so an update for a rVID reconciled
+by this node shortly before does not need the GSI read.
+
+- entries expire after `ttl` (other nodes write as well) and the least recently used entries are evicted above
+  `maxEntries`.
+- the listener writes its successful changes through. if a write of the update was outdated (or not processed), the
+  table state is unknown and the entry is invalidated.
+- a platform vendor added to a rVID is removed from the entry of its former rVID (the entry is invalidated).
+
+the vendors are copied on put and get, as the listener modifies them.
+ */
+public class ExistingVendorCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // access ordered for LRU eviction, guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // hash key -> rVID of the entry it is cached in, guarded by this
+    private final Map<String, String> rVidByHashKey = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ExistingVendorCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    // null, if not cached (or expired)
+    public List<Vendor> get(String rVID) {
+
+        List<Vendor> vendors;
+        synchronized (this) {
+            Entry entry = entries.get(rVID);
+            if (entry != null && System.nanoTime() - entry.createdAtNanos > ttlNanos) {
+                remove(rVID);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            vendors = entry.vendors;
+        }
+
+        hits.increment();
+        return copy(vendors);
+    }
+
+    public void put(String rVID, List<Vendor> vendors) {
+
+        List<Vendor> copies = copy(vendors);
+
+        synchronized (this) {
+            remove(rVID);
+            for (Vendor vendor : copies) {
+                String formerRvid = rVidByHashKey.put(vendor.getHashKey(), rVID);
+                if (formerRvid != null && !formerRvid.equals(rVID)) {
+                    // platform vendor moved to this rVID
+                    remove(formerRvid);
+                }
+            }
+            entries.put(rVID, new Entry(copies, System.nanoTime()));
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                eldest.remove();
+                removeHashKeys(evicted.getKey(), evicted.getValue());
+            }
+        }
+    }
+
+    public synchronized void invalidate(String rVID) {
+        remove(rVID);
+    }
+
+    // also invalidates the entry of the rVID, the platform vendor is cached for
+    public synchronized void invalidateHashKey(String hashKey) {
+        String rVID = rVidByHashKey.get(hashKey);
+        if (rVID != null) {
+            remove(rVID);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(String rVID) {
+        Entry entry = entries.remove(rVID);
+        if (entry != null) {
+            removeHashKeys(rVID, entry);
+        }
+    }
+
+    private void removeHashKeys(String rVID, Entry entry) {
+        for (Vendor vendor : entry.vendors) {
+            rVidByHashKey.remove(vendor.getHashKey(), rVID);
+        }
+    }
+
+    private static List<Vendor> copy(List<Vendor> vendors) {
+        List<Vendor> copies = new ArrayList<>(vendors.size());
+        vendors.forEach(vendor -> copies.add(new Vendor(vendor)));
+        return copies;
+    }
+
+    private static class Entry {
+
+        private final List<Vendor> vendors;
+        private final long createdAtNanos;
+
+        Entry(List<Vendor> vendors, long createdAtNanos) {
+            this.vendors = vendors;
+            this.createdAtNanos = createdAtNanos;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package v_final;
+
+/*
+64 bit FNV-1a over the chars of strings. fast and good enough for fingerprints, not for hash tables or bloom filters
+on its own (it mixes the low bits poorly, see RecentOrderKeyFilter).
+
+    long hash = Fnv1a.hash(Fnv1a.OFFSET_BASIS, value);
+ */
+public final class Fnv1a {
+
+    public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private Fnv1a() {
+    }
+
+    public static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = mix(hash, value.charAt(i));
+        }
+        return hash;
+    }
+
+    // a single value, e.g. a separator between strings or a marker outside of the char range
+    public static long mix(long hash, int value) {
+        hash ^= value;
+        hash *= PRIME;
+        return hash;
+    }
+}
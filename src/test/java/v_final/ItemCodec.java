@@ -0,0 +1,13 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.Map;
+
+// converts an entity to its item and back, without the mapper (see EntityCodecs)
+public interface ItemCodec<T> {
+
+    Map<String, AttributeValue> encode(T entity);
+
+    T decode(Map<String, AttributeValue> item);
+}
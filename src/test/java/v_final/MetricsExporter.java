@@ -0,0 +1,30 @@
+package v_final;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+
+/*
+receives the metrics of an operation on OperationMetrics.export. the histogram holds the latencies (in micros) since the
+last export and is reused afterwards, so copy it, if it is kept. plug in the metrics system of the service here (e.g.
+a percentile gauge per operation).
+ */
+public interface MetricsExporter {
+
+    void export(OperationMetrics.Operation operation, Histogram intervalLatencyMicros);
+
+    // one line per operation called since the last export
+    static MetricsExporter printingTo(PrintStream out) {
+        return (operation, latency) -> {
+            if (latency.getTotalCount() == 0) {
+                return;
+            }
+            out.printf("%s: calls=%d p50=%dus p99=%dus max=%dus | total: calls=%d errors=%d items=%d retries=%d "
+                            + "throttles=%d conditionalCheckFailures=%d%n",
+                    operation.getName(), latency.getTotalCount(), latency.getValueAtPercentile(50),
+                    latency.getValueAtPercentile(99), latency.getMaxValue(), operation.getCalls(),
+                    operation.getErrors(), operation.getItems(), operation.getRetries(), operation.getThrottles(),
+                    operation.getConditionalCheckFailures());
+        };
+    }
+}
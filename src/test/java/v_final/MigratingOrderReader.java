@@ -0,0 +1,134 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+reads the orders during a migration from one layout to the other (see OrderLayout): from the primary layout (the one
+written to now) first, and from the other one, if not found there. the orders are returned as the entities of the
+two table layout, so the callers do not need to know the layout.
+
+a slim guard (see OrderStore) is resolved to the full order via its gEID.
+
+with an OrderNearCache, the cached orders are not read again, a loaded order is cached by both of its hash keys.
+
+the fallback reads cost 1 more read per order inserted before the migration. when `getFallbackHits` stays 0 (e.g.
+after all old orders have been cleaned up by TTL), the reader of the primary layout is enough.
+ */
+public class MigratingOrderReader {
+
+    private final DynamoDBMapper mapper;
+    private final OrderLayout primary;
+    private final OrderNearCache orderNearCache;
+    // the reads from table, not the ones served by the cache
+    private final OperationMetrics.Operation loadByPoidGeidOperation;
+    private final OperationMetrics.Operation loadByPoidGkOperation;
+
+    private final LongAdder fallbackHits = new LongAdder();
+
+    public MigratingOrderReader(DynamoDBMapper mapper, OrderLayout primary) {
+        this(mapper, primary, null);
+    }
+
+    // orderNearCache: null for none
+    public MigratingOrderReader(DynamoDBMapper mapper, OrderLayout primary, OrderNearCache orderNearCache) {
+        this(mapper, primary, orderNearCache, null);
+    }
+
+    // orderNearCache, metrics: null for none
+    public MigratingOrderReader(DynamoDBMapper mapper, OrderLayout primary, OrderNearCache orderNearCache,
+                                OperationMetrics metrics) {
+        this.mapper = mapper;
+        this.primary = primary;
+        this.orderNearCache = orderNearCache;
+        OperationMetrics operationMetrics = metrics != null ? metrics : OperationMetrics.NONE;
+        this.loadByPoidGeidOperation = operationMetrics.operation("order.loadByPoidGeid");
+        this.loadByPoidGkOperation = operationMetrics.operation("order.loadByPoidGk");
+    }
+
+    // null, if not existing in either layout
+    public OrderByPoidGeid loadByPoidGeid(String platformOrderId, String globalEntityId) {
+        if (orderNearCache != null) {
+            OrderByPoidGeid cached = orderNearCache.getByPoidGeid(platformOrderId, globalEntityId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        OrderByPoidGeid order;
+        long start = loadByPoidGeidOperation.start();
+        try {
+            order = loadByPoidGeid(primary, platformOrderId, globalEntityId);
+            if (order == null) {
+                order = loadByPoidGeid(primary.other(), platformOrderId, globalEntityId);
+                if (order != null) {
+                    fallbackHits.increment();
+                }
+            }
+            loadByPoidGeidOperation.end(start, order == null ? 0 : 1);
+        } catch (RuntimeException e) {
+            loadByPoidGeidOperation.fail(start);
+            throw e;
+        }
+        if (order != null && orderNearCache != null) {
+            orderNearCache.put(order);
+        }
+        return order;
+    }
+
+    // null, if not existing in either layout
+    public OrderByPoidGk loadByPoidGk(String platformOrderId, String globalKey) {
+        if (orderNearCache != null) {
+            OrderByPoidGk cached = orderNearCache.getByPoidGk(platformOrderId, globalKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        OrderByPoidGk order;
+        long start = loadByPoidGkOperation.start();
+        try {
+            order = loadByPoidGk(primary, platformOrderId, globalKey);
+            if (order == null) {
+                order = loadByPoidGk(primary.other(), platformOrderId, globalKey);
+                if (order != null) {
+                    fallbackHits.increment();
+                }
+            }
+            loadByPoidGkOperation.end(start, order == null ? 0 : 1);
+        } catch (RuntimeException e) {
+            loadByPoidGkOperation.fail(start);
+            throw e;
+        }
+        if (order != null && orderNearCache != null) {
+            orderNearCache.put(order);
+        }
+        return order;
+    }
+
+    public long getFallbackHits() {
+        return fallbackHits.sum();
+    }
+
+    private OrderByPoidGeid loadByPoidGeid(OrderLayout layout, String platformOrderId, String globalEntityId) {
+        if (layout == OrderLayout.TWO_TABLES) {
+            return mapper.load(OrderByPoidGeid.class, OrderByPoidGeid.hashKeyOf(platformOrderId, globalEntityId));
+        }
+        OrderItem orderItem = mapper.load(OrderItem.class, OrderItem.hashKeyByPoidGeid(platformOrderId, globalEntityId));
+        return orderItem == null ? null : orderItem.toOrderByPoidGeid();
+    }
+
+    private OrderByPoidGk loadByPoidGk(OrderLayout layout, String platformOrderId, String globalKey) {
+        AbstractOrderByPoidAnd guard = layout == OrderLayout.TWO_TABLES
+                ? mapper.load(OrderByPoidGk.class, OrderByPoidGk.hashKeyOf(platformOrderId, globalKey))
+                : mapper.load(OrderItem.class, OrderItem.hashKeyByPoidGk(platformOrderId, globalKey));
+        if (guard == null) {
+            return null;
+        }
+        // the full order is in the same layout as its guard
+        AbstractOrderByPoidAnd order = guard.isGuardOnly()
+                ? loadByPoidGeid(layout, platformOrderId, guard.getGlobalEntityId())
+                : guard;
+        return order == null ? null : new OrderByPoidGk(order.getPlatformOrderId(), order.getGlobalEntityId(),
+                order.getGlobalKey(), order.getOrderJsonVersion(), order.getCleanupAfter());
+    }
+}
@@ -0,0 +1,246 @@
+package v_final;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+per operation (e.g. "vendor.gsiQuery") latency histogram (in micros) and counters of the repository methods, to see
+where the time goes, e.g. in VendorListenerLogic.update. meant to be left on in production:
+- the operations are looked up once (by the repositories on construction), recording does not allocate (HdrHistogram
+  Recorder and LongAdder). only a new max latency resizes the histogram.
+- `export` hands the latencies since the last export and the counters to a MetricsExporter (e.g. a scheduled task).
+
+an operation is timed by its caller:
+
+    long start = operation.start();
+    try {
+        ...
+        operation.end(start, items);
+    } catch (RuntimeException e) {
+        operation.fail(start);
+        throw e;
+    }
+
+retries, throttles and conditional check failures happen within the client, so they are counted by the request
+handler of these metrics (add it to the client builder via `withRequestHandlers(metrics.requestHandler())`). they
+are counted for the innermost operation started on the thread sending the request, "other" if none (e.g. the async
+client, which sends on its own threads).
+
+NONE records nothing, for the repositories without metrics.
+ */
+public class OperationMetrics {
+
+    public static final OperationMetrics NONE = new OperationMetrics(false);
+
+    public static final String OTHER_OPERATION = "other";
+
+    // deeper nested operations are not tracked as the current one (but still timed)
+    private static final int MAX_NESTING = 8;
+
+    private final boolean enabled;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final ThreadLocal<Context> context = ThreadLocal.withInitial(Context::new);
+    private final Operation other;
+
+    public OperationMetrics() {
+        this(true);
+    }
+
+    private OperationMetrics(boolean enabled) {
+        this.enabled = enabled;
+        this.other = operation(OTHER_OPERATION);
+    }
+
+    // created on first use, look it up once and keep it
+    public Operation operation(String name) {
+        return operations.computeIfAbsent(name, Operation::new);
+    }
+
+    // the latencies since the last export, so the exporter gets interval histograms
+    public synchronized void export(MetricsExporter exporter) {
+        for (Operation operation : operations.values()) {
+            Histogram interval = operation.latency.getIntervalHistogram(operation.recycledInterval);
+            operation.recycledInterval = interval;
+            exporter.export(operation, interval);
+        }
+    }
+
+    public RequestHandler2 requestHandler() {
+        return new RequestHandler2() {
+
+            @Override
+            public void beforeRequest(Request<?> request) {
+                context.get().attempts = 0;
+            }
+
+            @Override
+            public void beforeAttempt(HandlerBeforeAttemptContext beforeAttemptContext) {
+                Context current = context.get();
+                if (current.attempts++ > 0) {
+                    current.operation().retries.increment();
+                }
+            }
+
+            @Override
+            public void afterAttempt(HandlerAfterAttemptContext afterAttemptContext) {
+                Exception exception = afterAttemptContext.getException();
+                if (exception instanceof SdkBaseException && RetryUtils.isThrottlingException((SdkBaseException) exception)) {
+                    context.get().operation().throttles.increment();
+                }
+            }
+
+            @Override
+            public void afterError(Request<?> request, Response<?> response, Exception exception) {
+                if (isConditionalCheckFailed(exception)) {
+                    context.get().operation().conditionalCheckFailures.increment();
+                }
+            }
+        };
+    }
+
+    private static boolean isConditionalCheckFailed(Exception exception) {
+        if (exception instanceof ConditionalCheckFailedException) {
+            return true;
+        }
+        if (exception instanceof TransactionCanceledException) {
+            List<CancellationReason> reasons = ((TransactionCanceledException) exception).getCancellationReasons();
+            if (reasons != null) {
+                for (int i = 0; i < reasons.size(); i++) {
+                    if ("ConditionalCheckFailed".equals(reasons.get(i).getCode())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // the operations started on a thread, innermost last
+    private class Context {
+
+        private final Operation[] started = new Operation[MAX_NESTING];
+        private int depth;
+        private int attempts;
+
+        private void push(Operation operation) {
+            if (depth < MAX_NESTING) {
+                started[depth] = operation;
+            }
+            depth++;
+        }
+
+        private void pop() {
+            // ended on another thread than started, nothing to pop here
+            if (depth == 0) {
+                return;
+            }
+            depth--;
+            if (depth < MAX_NESTING) {
+                started[depth] = null;
+            }
+        }
+
+        private Operation operation() {
+            return depth == 0 ? other : started[Math.min(depth, MAX_NESTING) - 1];
+        }
+    }
+
+    public class Operation {
+
+        private final String name;
+        private final Recorder latency = new Recorder(3);
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder throttles = new LongAdder();
+        private final LongAdder conditionalCheckFailures = new LongAdder();
+        // guarded by OperationMetrics.this
+        private Histogram recycledInterval;
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        // returns the start, to pass to `end` or `fail` on the same thread
+        public long start() {
+            if (!enabled) {
+                return 0;
+            }
+            context.get().push(this);
+            return System.nanoTime();
+        }
+
+        // items: read or written by the call
+        public void end(long start, long items) {
+            if (!enabled) {
+                return;
+            }
+            latency.recordValue((System.nanoTime() - start) / 1000);
+            calls.increment();
+            this.items.add(items);
+            context.get().pop();
+        }
+
+        // ended by an exception
+        public void fail(long start) {
+            if (!enabled) {
+                return;
+            }
+            end(start, 0);
+            errors.increment();
+        }
+
+        // a retry by the caller (e.g. of unprocessed keys), the retries of the client are counted by the request handler
+        public void retried() {
+            if (enabled) {
+                retries.increment();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // the counters are totals since the start
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getItems() {
+            return items.sum();
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public long getThrottles() {
+            return throttles.sum();
+        }
+
+        public long getConditionalCheckFailures() {
+            return conditionalCheckFailures.sum();
+        }
+    }
+}
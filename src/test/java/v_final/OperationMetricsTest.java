@@ -0,0 +1,118 @@
+package v_final;
+
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OperationMetricsTest {
+
+    @Test
+    public void testExportsIntervals() {
+
+        OperationMetrics metrics = new OperationMetrics();
+        OperationMetrics.Operation load = metrics.operation("order.load");
+
+        for (int i = 0; i < 10; i++) {
+            long start = load.start();
+            load.end(start, 2);
+        }
+        load.fail(load.start());
+
+        Map<String, Long> exported = new HashMap<>();
+        metrics.export((operation, latency) -> exported.put(operation.getName(), latency.getTotalCount()));
+        assertEquals(11, (long) exported.get("order.load"));
+        assertEquals(11, load.getCalls());
+        assertEquals(1, load.getErrors());
+        assertEquals(20, load.getItems());
+
+        // only the latencies since the last export, the counters are totals
+        long start = load.start();
+        load.end(start, 1);
+        metrics.export((operation, latency) -> exported.put(operation.getName(), latency.getTotalCount()));
+        assertEquals(1, (long) exported.get("order.load"));
+        assertEquals(12, load.getCalls());
+    }
+
+    @Test
+    public void testClientEventsOfInnermostOperation() {
+
+        OperationMetrics metrics = new OperationMetrics();
+        OperationMetrics.Operation update = metrics.operation("vendor.update");
+        OperationMetrics.Operation save = metrics.operation("vendor.save");
+        RequestHandler2 requestHandler = metrics.requestHandler();
+
+        long updateStart = update.start();
+        long saveStart = save.start();
+        // 1 request, sent twice
+        requestHandler.beforeRequest(null);
+        requestHandler.beforeAttempt(null);
+        requestHandler.beforeAttempt(null);
+        requestHandler.afterError(null, null, new ConditionalCheckFailedException("The conditional request failed"));
+        save.end(saveStart, 0);
+
+        requestHandler.beforeRequest(null);
+        requestHandler.beforeAttempt(null);
+        requestHandler.afterError(null, null, new ConditionalCheckFailedException("The conditional request failed"));
+        update.end(updateStart, 1);
+
+        // no operation started
+        requestHandler.beforeRequest(null);
+        requestHandler.beforeAttempt(null);
+        requestHandler.beforeAttempt(null);
+
+        assertEquals(1, save.getRetries());
+        assertEquals(1, save.getConditionalCheckFailures());
+        assertEquals(0, update.getRetries());
+        assertEquals(1, update.getConditionalCheckFailures());
+        assertEquals(1, metrics.operation(OperationMetrics.OTHER_OPERATION).getRetries());
+    }
+
+    @Test
+    public void testEndedOnAnotherThread() throws Exception {
+
+        OperationMetrics metrics = new OperationMetrics();
+        OperationMetrics.Operation commit = metrics.operation("order.ingestCommit");
+        OperationMetrics.Operation save = metrics.operation("vendor.save");
+        RequestHandler2 requestHandler = metrics.requestHandler();
+
+        // started on this thread, ended on another one, which has nothing started (and can still time its own)
+        long commitStart = commit.start();
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            other.submit(() -> commit.end(commitStart, 1)).get();
+            other.submit(() -> save.end(save.start(), 1)).get();
+        } finally {
+            other.shutdown();
+        }
+        assertEquals(1, commit.getCalls());
+        assertEquals(1, save.getCalls());
+
+        // still tracked here, as it has not been ended on this thread
+        long saveStart = save.start();
+        save.end(saveStart, 1);
+        requestHandler.beforeRequest(null);
+        requestHandler.beforeAttempt(null);
+        requestHandler.beforeAttempt(null);
+        assertEquals(1, commit.getRetries());
+        assertEquals(0, save.getRetries());
+    }
+
+    @Test
+    public void testNoneRecordsNothing() {
+
+        OperationMetrics.Operation load = OperationMetrics.NONE.operation("order.load");
+        load.end(load.start(), 1);
+
+        Map<String, Long> exported = new HashMap<>();
+        OperationMetrics.NONE.export((operation, latency) -> exported.put(operation.getName(), latency.getTotalCount()));
+        assertEquals(0, load.getCalls());
+        assertEquals(0, (long) exported.get("order.load"));
+    }
+}
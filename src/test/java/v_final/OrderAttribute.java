@@ -0,0 +1,20 @@
+package v_final;
+
+// the non-key attributes of the order items, for projections (see OrderProjectionReader)
+public enum OrderAttribute {
+
+    GLOBAL_ENTITY_ID("gEID"),
+    GLOBAL_KEY("gK"),
+    ORDER_JSON_VERSION("oJV"),
+    TTL("ttl");
+
+    private final String attributeName;
+
+    OrderAttribute(String attributeName) {
+        this.attributeName = attributeName;
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+}
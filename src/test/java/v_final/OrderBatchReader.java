@@ -0,0 +1,154 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+loads many orders via BatchGetItem (max 100 keys per call), instead of 1 mapper.load per order. e.g. for pollers, which
+need dozens of orders at once.
+
+the orders are passed to the consumer as soon as their batch response arrives (streamed), not existing ones are
+skipped. duplicate keys are loaded once (BatchGetItem rejects them). unprocessed keys (throttling, or > 16MB response)
+are retried with exponential backoff and jitter. keys which are still unprocessed after the last retry are returned.
+
+slim guards (see OrderStore) of the gK table are resolved via their gEID, in 1 more BatchGetItem per 100 guards.
+ */
+public class OrderBatchReader {
+
+    static final int MAX_KEYS_PER_BATCH = 100;
+
+    private final AmazonDynamoDB client;
+    private final DynamoDBMapperTableModel<OrderByPoidGeid> orderByPoidGeidModel;
+    private final DynamoDBMapperTableModel<OrderByPoidGk> orderByPoidGkModel;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final OperationMetrics.Operation batchGetItemOperation;
+
+    public OrderBatchReader(AmazonDynamoDB client, DynamoDBMapper mapper) {
+        this(client, mapper, 8, 50);
+    }
+
+    public OrderBatchReader(AmazonDynamoDB client, DynamoDBMapper mapper, int maxRetries, long baseBackoffMillis) {
+        this(client, mapper, maxRetries, baseBackoffMillis, null);
+    }
+
+    // metrics: null for none
+    public OrderBatchReader(AmazonDynamoDB client, DynamoDBMapper mapper, int maxRetries, long baseBackoffMillis,
+                            OperationMetrics metrics) {
+        this.client = client;
+        this.orderByPoidGeidModel = mapper.getTableModel(OrderByPoidGeid.class);
+        this.orderByPoidGkModel = mapper.getTableModel(OrderByPoidGk.class);
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.batchGetItemOperation = (metrics != null ? metrics : OperationMetrics.NONE).operation("order.batchGetItem");
+    }
+
+    // hash keys: see OrderByPoidGeid.hashKeyOf. returns the unprocessed hash keys
+    public Set<String> loadByPoidGeid(Collection<String> hashKeys, Consumer<OrderByPoidGeid> consumer) {
+        return load(OrderByPoidGeid.TABLE_NAME, "pOIDgEID", orderByPoidGeidModel, hashKeys, consumer);
+    }
+
+    // hash keys: see OrderByPoidGk.hashKeyOf. returns the unprocessed hash keys
+    public Set<String> loadByPoidGk(Collection<String> hashKeys, Consumer<OrderByPoidGk> consumer) {
+
+        // guard hash key -> guard, by gEID hash key
+        Map<String, OrderByPoidGk> guards = new HashMap<>();
+        Set<String> unprocessed = load(OrderByPoidGk.TABLE_NAME, "pOIDgK", orderByPoidGkModel, hashKeys, order -> {
+            if (order.isGuardOnly()) {
+                guards.put(OrderByPoidGeid.hashKeyOf(order.getPlatformOrderId(), order.getGlobalEntityId()), order);
+            } else {
+                consumer.accept(order);
+            }
+        });
+
+        if (!guards.isEmpty()) {
+            Set<String> unresolved = load(OrderByPoidGeid.TABLE_NAME, "pOIDgEID", orderByPoidGeidModel, guards.keySet(),
+                    order -> consumer.accept(new OrderByPoidGk(order.getPlatformOrderId(), order.getGlobalEntityId(),
+                            order.getGlobalKey(), order.getOrderJsonVersion(), order.getCleanupAfter())));
+            unresolved.forEach(hashKey -> unprocessed.add(guards.get(hashKey).getHashKey()));
+        }
+        return unprocessed;
+    }
+
+    public Map<String, OrderByPoidGeid> loadAllByPoidGeid(Collection<String> hashKeys) {
+        Map<String, OrderByPoidGeid> orders = new HashMap<>();
+        loadByPoidGeid(hashKeys, order -> orders.put(order.getHashKey(), order));
+        return orders;
+    }
+
+    public Map<String, OrderByPoidGk> loadAllByPoidGk(Collection<String> hashKeys) {
+        Map<String, OrderByPoidGk> orders = new HashMap<>();
+        loadByPoidGk(hashKeys, order -> orders.put(order.getHashKey(), order));
+        return orders;
+    }
+
+    private <T> Set<String> load(String tableName, String hashKeyName, DynamoDBMapperTableModel<T> tableModel,
+                                 Collection<String> hashKeys, Consumer<T> consumer) {
+
+        Set<String> unprocessed = new HashSet<>();
+        List<Map<String, AttributeValue>> chunk = new ArrayList<>(MAX_KEYS_PER_BATCH);
+
+        for (String hashKey : new LinkedHashSet<>(hashKeys)) {
+            chunk.add(Map.of(hashKeyName, new AttributeValue(hashKey)));
+            if (chunk.size() == MAX_KEYS_PER_BATCH) {
+                loadChunk(tableName, hashKeyName, tableModel, chunk, consumer, unprocessed);
+                chunk = new ArrayList<>(MAX_KEYS_PER_BATCH);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            loadChunk(tableName, hashKeyName, tableModel, chunk, consumer, unprocessed);
+        }
+
+        return unprocessed;
+    }
+
+    private <T> void loadChunk(String tableName, String hashKeyName, DynamoDBMapperTableModel<T> tableModel,
+                               List<Map<String, AttributeValue>> chunk, Consumer<T> consumer, Set<String> unprocessed) {
+
+        List<Map<String, AttributeValue>> pending = chunk;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+
+            if (attempt > 0) {
+                if (attempt > maxRetries || !Backoff.sleep(baseBackoffMillis, attempt)) {
+                    pending.forEach(key -> unprocessed.add(key.get(hashKeyName).getS()));
+                    return;
+                }
+                batchGetItemOperation.retried();
+            }
+
+            BatchGetItemResult result;
+            long start = batchGetItemOperation.start();
+            try {
+                result = client.batchGetItem(new BatchGetItemRequest()
+                        .withRequestItems(Map.of(tableName, new KeysAndAttributes().withKeys(pending))));
+            } catch (RuntimeException e) {
+                batchGetItemOperation.fail(start);
+                throw e;
+            }
+
+            List<Map<String, AttributeValue>> items = result.getResponses().get(tableName);
+            batchGetItemOperation.end(start, items == null ? 0 : items.size());
+            if (items != null) {
+                items.forEach(item -> consumer.accept(tableModel.unconvert(item)));
+            }
+
+            KeysAndAttributes unprocessedKeys = result.getUnprocessedKeys().get(tableName);
+            pending = unprocessedKeys == null ? List.of() : unprocessedKeys.getKeys();
+        }
+    }
+}
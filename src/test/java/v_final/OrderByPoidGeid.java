@@ -12,6 +12,8 @@ public class OrderByPoidGeid extends AbstractOrderByPoidAnd {
 
     public static final String TABLE_NAME = "orderByPoidGeid";
 
+    private final CompositeKey.Cache hashKeyCache = new CompositeKey.Cache();
+
     public OrderByPoidGeid(String platformOrderId, String globalEntityId, String globalKey, String orderJsonVersion, Instant cleanupAfter) {
         super(platformOrderId, globalEntityId, globalKey, orderJsonVersion, cleanupAfter);
     }
@@ -30,15 +32,18 @@ public class OrderByPoidGeid extends AbstractOrderByPoidAnd {
         this.globalKey = globalKey;
     }
 
+    public static String hashKeyOf(String platformOrderId, String globalEntityId) {
+        return CompositeKey.encode(platformOrderId, globalEntityId);
+    }
+
     // must be on getter/setter. does not work on public field
     @DynamoDBHashKey(attributeName = "pOIDgEID")
     public String getHashKey() {
-        return platformOrderId + "<<>>" + globalEntityId;
+        return hashKeyCache.get(platformOrderId, globalEntityId);
     }
 
     public void setHashKey(String hashKey) {
-        String[] parts = hashKey.split("<<>>"); // delimiter must not be used within pOID or gEID
-        platformOrderId = parts[0];
-        globalEntityId = parts[1];
+        platformOrderId = CompositeKey.left(hashKey);
+        globalEntityId = CompositeKey.right(hashKey);
     }
 }
@@ -5,6 +5,7 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
 
 import java.time.Instant;
+import java.util.Set;
 
 // https://docs.aws.amazon.com/de_de/amazondynamodb/latest/developerguide/DynamoDBMapper.html
 @DynamoDBTable(tableName = OrderByPoidGk.TABLE_NAME)
@@ -12,6 +13,11 @@ public class OrderByPoidGk extends AbstractOrderByPoidAnd {
 
     public static final String TABLE_NAME = "orderByPoidGk";
 
+    // written for a slim guard (see OrderStore): the key, gEID as pointer to the OrderByPoidGeid item, the ttl and the marker
+    public static final Set<String> GUARD_ATTRIBUTES = Set.of("pOIDgK", "gEID", "ttl", SLIM_GUARD_ATTRIBUTE);
+
+    private final CompositeKey.Cache hashKeyCache = new CompositeKey.Cache();
+
     public OrderByPoidGk(String platformOrderId, String globalEntityId, String globalKey, String orderJsonVersion, Instant cleanupAfter) {
         super(platformOrderId, globalEntityId, globalKey, orderJsonVersion, cleanupAfter);
     }
@@ -30,15 +36,18 @@ public class OrderByPoidGk extends AbstractOrderByPoidAnd {
         this.globalEntityId = globalEntityId;
     }
 
+    public static String hashKeyOf(String platformOrderId, String globalKey) {
+        return CompositeKey.encode(platformOrderId, globalKey);
+    }
+
     // must be on getter/setter. does not work on public field
     @DynamoDBHashKey(attributeName = "pOIDgK")
     public String getHashKey() {
-        return platformOrderId + "<<>>" + globalKey;
+        return hashKeyCache.get(platformOrderId, globalKey);
     }
 
     public void setHashKey(String hashKey) {
-        String[] parts = hashKey.split("<<>>"); // delimiter must not be used within pOID or gK
-        platformOrderId = parts[0];
-        globalKey = parts[1];
+        platformOrderId = CompositeKey.left(hashKey);
+        globalKey = CompositeKey.right(hashKey);
     }
 }
@@ -0,0 +1,276 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTransactionWriteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+group commit of order inserts: the orders of concurrent callers arriving within the commit window are written in one
+TX (2 puts per order, one per order table), instead of one TX per order.
+
+if the TX is cancelled, the cancellation reasons (2 per order, "None" for the items, which did not cancel it) tell
+what to do with each order:
+- ConditionalCheckFailed: the order is a duplicate, its caller gets the TransactionCanceledException.
+- any other reason, except conflicts and throttling (e.g. ValidationError): its caller gets an IllegalStateException
+  (with the TransactionCanceledException as cause), the order is not a duplicate.
+- the rest is committed again. if the TX has only been cancelled due to a conflicting TX or throttling, the whole
+  batch is retried with backoff. after the last attempt its callers get an IllegalStateException as well.
+without usable reasons the batch is bisected, until the failing order is alone in its TX.
+
+2 orders with the same hash key in one batch would be rejected by DynamoDB (1 operation per item per TX), so the later
+one is deferred to the next batch (where it fails as duplicate, the same as if inserted after the first one).
+
+max 50 orders (100 items) fit into one TX in AWS. DynamoDB local still has the former limit of 25 items (12 orders).
+
+each TX is timed as operation "order.ingestCommit" (items: the orders committed, a cancelled TX counts 0), a batch
+retried after a conflict or throttling counts as retry. all TXs are sent by the committer thread, so they are timed
+there, not on the threads of the callers.
+ */
+public class OrderIngestService implements AutoCloseable {
+
+    public static final int MAX_ORDERS_PER_TRANSACTION = 50;
+
+    private static final String CONDITIONAL_CHECK_FAILED = "ConditionalCheckFailed";
+
+    private final DynamoDBMapper mapper;
+    private final int maxOrdersPerTransaction;
+    private final long commitWindowNanos;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final OperationMetrics.Operation commitOperation;
+
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    private final Deque<PendingOrder> deferred = new ArrayDeque<>();
+    private final Thread committer;
+    private volatile boolean closed;
+
+    public OrderIngestService(DynamoDBMapper mapper, int maxOrdersPerTransaction, long commitWindowMicros) {
+        this(mapper, maxOrdersPerTransaction, commitWindowMicros, 5, 20);
+    }
+
+    // maxAttempts: of a batch cancelled due to conflicts or throttling
+    public OrderIngestService(DynamoDBMapper mapper, int maxOrdersPerTransaction, long commitWindowMicros,
+                              int maxAttempts, long baseBackoffMillis) {
+        this(mapper, maxOrdersPerTransaction, commitWindowMicros, maxAttempts, baseBackoffMillis, null);
+    }
+
+    // metrics: null for none
+    public OrderIngestService(DynamoDBMapper mapper, int maxOrdersPerTransaction, long commitWindowMicros,
+                              int maxAttempts, long baseBackoffMillis, OperationMetrics metrics) {
+        this.mapper = mapper;
+        this.maxOrdersPerTransaction = Math.min(maxOrdersPerTransaction, MAX_ORDERS_PER_TRANSACTION);
+        this.commitWindowNanos = TimeUnit.MICROSECONDS.toNanos(commitWindowMicros);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.commitOperation = (metrics != null ? metrics : OperationMetrics.NONE).operation("order.ingestCommit");
+        this.committer = new Thread(this::commitLoop, "order-ingest-committer");
+        this.committer.start();
+    }
+
+    /*
+    completes exceptionally with a TransactionCanceledException, if (pOID, gEID) or (pOID, gK) is existing already. any
+    other exception means, that the order has not been inserted for another reason.
+     */
+    public CompletableFuture<Void> insert(OrderByPoidGeid orderByPoidGeid, OrderByPoidGk orderByPoidGk) {
+        PendingOrder pendingOrder = new PendingOrder(orderByPoidGeid, orderByPoidGk);
+        if (closed) {
+            pendingOrder.future.completeExceptionally(new IllegalStateException("order ingest service closed"));
+            return pendingOrder.future;
+        }
+        queue.add(pendingOrder);
+        return pendingOrder.future;
+    }
+
+    // commits all orders inserted so far
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        committer.join();
+        // inserted concurrently to closing
+        PendingOrder pendingOrder;
+        while ((pendingOrder = queue.poll()) != null) {
+            pendingOrder.future.completeExceptionally(new IllegalStateException("order ingest service closed"));
+        }
+    }
+
+    private void commitLoop() {
+        while (!closed || !queue.isEmpty() || !deferred.isEmpty()) {
+            try {
+                commitSafely(nextBatch());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private List<PendingOrder> nextBatch() throws InterruptedException {
+
+        List<PendingOrder> batch = new ArrayList<>(maxOrdersPerTransaction);
+        Set<String> hashKeys = new HashSet<>();
+
+        fill(batch, hashKeys);
+        if (batch.isEmpty()) {
+            // wait for the first order, then give the others the commit window to join
+            PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return batch;
+            }
+            addOrDefer(first, batch, hashKeys);
+        }
+
+        long deadline = System.nanoTime() + commitWindowNanos;
+        while (batch.size() < maxOrdersPerTransaction && !closed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingOrder pendingOrder = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (pendingOrder == null) {
+                break;
+            }
+            addOrDefer(pendingOrder, batch, hashKeys);
+        }
+        // no need to wait anymore
+        fill(batch, hashKeys);
+        return batch;
+    }
+
+    // takes the deferred orders first, then the queued ones, without waiting
+    private void fill(List<PendingOrder> batch, Set<String> hashKeys) {
+        int deferredCount = deferred.size();
+        for (int i = 0; i < deferredCount && batch.size() < maxOrdersPerTransaction; i++) {
+            addOrDefer(deferred.pollFirst(), batch, hashKeys);
+        }
+        PendingOrder pendingOrder;
+        while (batch.size() < maxOrdersPerTransaction && (pendingOrder = queue.poll()) != null) {
+            addOrDefer(pendingOrder, batch, hashKeys);
+        }
+    }
+
+    private void addOrDefer(PendingOrder pendingOrder, List<PendingOrder> batch, Set<String> hashKeys) {
+        String geidKey = OrderByPoidGeid.TABLE_NAME + pendingOrder.orderByPoidGeid.getHashKey();
+        String gkKey = OrderByPoidGk.TABLE_NAME + pendingOrder.orderByPoidGk.getHashKey();
+        if (hashKeys.contains(geidKey) || hashKeys.contains(gkKey)) {
+            deferred.addLast(pendingOrder);
+            return;
+        }
+        hashKeys.add(geidKey);
+        hashKeys.add(gkKey);
+        batch.add(pendingOrder);
+    }
+
+    private void commitSafely(List<PendingOrder> batch) {
+        try {
+            commit(batch, 1);
+        } catch (RuntimeException e) {
+            batch.forEach(pendingOrder -> pendingOrder.future.completeExceptionally(e));
+        }
+    }
+
+    private void commit(List<PendingOrder> batch, int attempt) {
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        TransactionWriteRequest transactionWriteRequest = new TransactionWriteRequest();
+        for (PendingOrder pendingOrder : batch) {
+            transactionWriteRequest
+                    .addPut(pendingOrder.orderByPoidGeid, new DynamoDBTransactionWriteExpression().withConditionExpression("attribute_not_exists(pOIDgEID)"))
+                    .addPut(pendingOrder.orderByPoidGk, new DynamoDBTransactionWriteExpression().withConditionExpression("attribute_not_exists(pOIDgK)"));
+        }
+
+        long start = commitOperation.start();
+        try {
+            mapper.transactionWrite(transactionWriteRequest);
+            commitOperation.end(start, batch.size());
+            batch.forEach(pendingOrder -> pendingOrder.future.complete(null));
+
+        } catch (TransactionCanceledException e) {
+            commitOperation.end(start, 0);
+
+            List<CancellationReason> reasons = e.getCancellationReasons();
+            if (reasons == null || reasons.size() != 2 * batch.size()) {
+                if (batch.size() == 1) {
+                    batch.get(0).future.completeExceptionally(notInserted(e));
+                    return;
+                }
+                // don't know, which one failed: bisect
+                int half = batch.size() / 2;
+                commit(batch.subList(0, half), 1);
+                commit(batch.subList(half, batch.size()), 1);
+                return;
+            }
+
+            List<PendingOrder> rest = new ArrayList<>(batch.size());
+            boolean retryable = false;
+            for (int i = 0; i < batch.size(); i++) {
+                PendingOrder pendingOrder = batch.get(i);
+                String geidCode = reasons.get(2 * i).getCode();
+                String gkCode = reasons.get(2 * i + 1).getCode();
+                if (CONDITIONAL_CHECK_FAILED.equals(geidCode) || CONDITIONAL_CHECK_FAILED.equals(gkCode)) {
+                    // duplicate
+                    pendingOrder.future.completeExceptionally(e);
+                } else if (!isNoneOrRetryable(geidCode) || !isNoneOrRetryable(gkCode)) {
+                    pendingOrder.future.completeExceptionally(notInserted(e));
+                } else {
+                    rest.add(pendingOrder);
+                    retryable |= isRetryable(geidCode) || isRetryable(gkCode);
+                }
+            }
+
+            if (rest.size() < batch.size()) {
+                // the rest has only been cancelled along with the failed orders
+                commit(rest, 1);
+            } else if (retryable && attempt < maxAttempts && Backoff.sleep(baseBackoffMillis, attempt)) {
+                commitOperation.retried();
+                commit(batch, attempt + 1);
+            } else {
+                batch.forEach(pendingOrder -> pendingOrder.future.completeExceptionally(notInserted(e)));
+            }
+        } catch (RuntimeException e) {
+            commitOperation.fail(start);
+            throw e;
+        }
+    }
+
+    private static boolean isNoneOrRetryable(String code) {
+        return code == null || "None".equals(code) || isRetryable(code);
+    }
+
+    // cancelled due to a conflicting TX or throttling, not due to the order itself
+    private static boolean isRetryable(String code) {
+        return "TransactionConflict".equals(code) || "ThrottlingError".equals(code)
+                || "ProvisionedThroughputExceeded".equals(code);
+    }
+
+    private static IllegalStateException notInserted(TransactionCanceledException e) {
+        return new IllegalStateException("order not inserted: " + e.getErrorMessage(), e);
+    }
+
+    private static class PendingOrder {
+
+        private final OrderByPoidGeid orderByPoidGeid;
+        private final OrderByPoidGk orderByPoidGk;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingOrder(OrderByPoidGeid orderByPoidGeid, OrderByPoidGk orderByPoidGk) {
+            this.orderByPoidGeid = orderByPoidGeid;
+            this.orderByPoidGk = orderByPoidGk;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIgnore;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+
+import java.time.Instant;
+import java.util.Set;
+
+/*
+an order in the single table layout (see OrderLayout). each order is stored twice, once per uniqueness guard:
+- "gEID#<pOID><<>><gEID>"
+- "gK#<pOID><<>><gK>"
+both items contain gEID and gK, so the whole order can be read from either of them.
+ */
+@DynamoDBTable(tableName = OrderItem.TABLE_NAME)
+public class OrderItem extends AbstractOrderByPoidAnd {
+
+    public static final String TABLE_NAME = "orders";
+
+    public static final String GEID_PREFIX = "gEID#";
+    public static final String GK_PREFIX = "gK#";
+
+    // written for a slim "gK#" guard (see OrderStore): the key, gEID as pointer to the "gEID#" item, the ttl and the marker
+    public static final Set<String> GUARD_ATTRIBUTES = Set.of("pk", "gEID", "ttl", SLIM_GUARD_ATTRIBUTE);
+
+    // GEID_PREFIX or GK_PREFIX
+    private String guard;
+
+    public OrderItem(String guard, String platformOrderId, String globalEntityId, String globalKey, String orderJsonVersion, Instant cleanupAfter) {
+        super(platformOrderId, globalEntityId, globalKey, orderJsonVersion, cleanupAfter);
+        this.guard = guard;
+    }
+
+    // needed for instantiation by mapper
+    public OrderItem() {
+        super();
+    }
+
+    public static OrderItem byPoidGeid(AbstractOrderByPoidAnd order) {
+        return new OrderItem(GEID_PREFIX, order.getPlatformOrderId(), order.getGlobalEntityId(), order.getGlobalKey(),
+                order.getOrderJsonVersion(), order.getCleanupAfter());
+    }
+
+    public static OrderItem byPoidGk(AbstractOrderByPoidAnd order) {
+        return new OrderItem(GK_PREFIX, order.getPlatformOrderId(), order.getGlobalEntityId(), order.getGlobalKey(),
+                order.getOrderJsonVersion(), order.getCleanupAfter());
+    }
+
+    public static String hashKeyByPoidGeid(String platformOrderId, String globalEntityId) {
+        return GEID_PREFIX + CompositeKey.encode(platformOrderId, globalEntityId);
+    }
+
+    public static String hashKeyByPoidGk(String platformOrderId, String globalKey) {
+        return GK_PREFIX + CompositeKey.encode(platformOrderId, globalKey);
+    }
+
+    @DynamoDBAttribute(attributeName = "gEID")
+    public String getGlobalEntityId() {
+        return globalEntityId;
+    }
+
+    public void setGlobalEntityId(String globalEntityId) {
+        this.globalEntityId = globalEntityId;
+    }
+
+    @DynamoDBAttribute(attributeName = "gK")
+    public String getGlobalKey() {
+        return globalKey;
+    }
+
+    public void setGlobalKey(String globalKey) {
+        this.globalKey = globalKey;
+    }
+
+    @DynamoDBIgnore
+    public String getGuard() {
+        return guard;
+    }
+
+    // must be on getter/setter. does not work on public field
+    @DynamoDBHashKey(attributeName = "pk")
+    public String getHashKey() {
+        return GEID_PREFIX.equals(guard)
+                ? hashKeyByPoidGeid(platformOrderId, globalEntityId)
+                : hashKeyByPoidGk(platformOrderId, globalKey);
+    }
+
+    public void setHashKey(String hashKey) {
+        guard = hashKey.startsWith(GEID_PREFIX) ? GEID_PREFIX : GK_PREFIX;
+        String compositeKey = hashKey.substring(guard.length());
+        platformOrderId = CompositeKey.left(compositeKey);
+        if (GEID_PREFIX.equals(guard)) {
+            globalEntityId = CompositeKey.right(compositeKey);
+        } else {
+            globalKey = CompositeKey.right(compositeKey);
+        }
+    }
+
+    public OrderByPoidGeid toOrderByPoidGeid() {
+        return new OrderByPoidGeid(platformOrderId, globalEntityId, globalKey, orderJsonVersion, cleanupAfter);
+    }
+
+    public OrderByPoidGk toOrderByPoidGk() {
+        return new OrderByPoidGk(platformOrderId, globalEntityId, globalKey, orderJsonVersion, cleanupAfter);
+    }
+}
@@ -0,0 +1,18 @@
+package v_final;
+
+/*
+TWO_TABLES: OrderByPoidGeid and OrderByPoidGk, 1 table per uniqueness guard (the current layout).
+SINGLE_TABLE: OrderItem, both guards as separate items in 1 table, the partition key prefixed by the guard.
+
+both write 2 items per order in 1 TX, so the WCU are the same (as long as the items are <= 1KB). the single table
+items are a little bigger (prefix, both gEID and gK), but there is only 1 table to provision, monitor and back up.
+ */
+public enum OrderLayout {
+
+    TWO_TABLES,
+    SINGLE_TABLE;
+
+    public OrderLayout other() {
+        return this == TWO_TABLES ? SINGLE_TABLE : TWO_TABLES;
+    }
+}
@@ -0,0 +1,187 @@
+package v_final;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+in-memory cache of the orders read by this node, in front of the order loads (see MigratingOrderReader). most reads
+of an order's lifecycle re-read the same (pOID, gEID, gK, oJV), so they don't need to go to DynamoDB.
+
+- keyed by both hash keys, an order loaded by gEID is found by gK as well (and vice versa).
+- an entry never lives longer than `maxAge` and never past the cleanupAfter of its order (the order is deleted by
+  TTL then).
+- bounded by the estimated size of the cached orders in bytes, the least recently used ones are evicted.
+- oJV can change (see OrderUpdates). the updates of this node are written through, the updates of other nodes are
+  seen after `maxAge` at the latest.
+
+the orders are copied on get, as the entities are mutable.
+ */
+public class OrderNearCache {
+
+    // object headers, references, Instant, map entries: roughly
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final long maxBytes;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    // by pOIDgEID, access ordered for LRU eviction, guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // pOIDgK -> pOIDgEID, guarded by this
+    private final Map<String, String> geidHashKeyByGkHashKey = new HashMap<>();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OrderNearCache(long maxBytes, Duration maxAge) {
+        this(maxBytes, maxAge, Clock.systemUTC());
+    }
+
+    OrderNearCache(long maxBytes, Duration maxAge, Clock clock) {
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    // null, if not cached (or expired)
+    public OrderByPoidGeid getByPoidGeid(String platformOrderId, String globalEntityId) {
+        Entry entry = get(OrderByPoidGeid.hashKeyOf(platformOrderId, globalEntityId));
+        return entry == null ? null : new OrderByPoidGeid(entry.platformOrderId, entry.globalEntityId, entry.globalKey,
+                entry.orderJsonVersion, entry.cleanupAfter);
+    }
+
+    // null, if not cached (or expired)
+    public OrderByPoidGk getByPoidGk(String platformOrderId, String globalKey) {
+        String geidHashKey;
+        synchronized (this) {
+            geidHashKey = geidHashKeyByGkHashKey.get(OrderByPoidGk.hashKeyOf(platformOrderId, globalKey));
+        }
+        Entry entry = get(geidHashKey);
+        return entry == null ? null : new OrderByPoidGk(entry.platformOrderId, entry.globalEntityId, entry.globalKey,
+                entry.orderJsonVersion, entry.cleanupAfter);
+    }
+
+    // the whole order, a slim guard (see AbstractOrderByPoidAnd.isGuardOnly) is not cached
+    public void put(AbstractOrderByPoidAnd order) {
+
+        if (order.isGuardOnly()) {
+            return;
+        }
+        Instant now = clock.instant();
+        Instant expiresAt = now.plus(maxAge);
+        if (order.getCleanupAfter() != null && order.getCleanupAfter().isBefore(expiresAt)) {
+            expiresAt = order.getCleanupAfter();
+        }
+        if (!expiresAt.isAfter(now)) {
+            return;
+        }
+
+        Entry entry = new Entry(order.getPlatformOrderId(), order.getGlobalEntityId(), order.getGlobalKey(),
+                order.getOrderJsonVersion(), order.getCleanupAfter(), expiresAt);
+        String geidHashKey = OrderByPoidGeid.hashKeyOf(entry.platformOrderId, entry.globalEntityId);
+
+        synchronized (this) {
+            remove(geidHashKey);
+            entries.put(geidHashKey, entry);
+            geidHashKeyByGkHashKey.put(OrderByPoidGk.hashKeyOf(entry.platformOrderId, entry.globalKey), geidHashKey);
+            bytes += entry.bytes;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                eldest.remove();
+                removeGkHashKey(evicted.getKey(), evicted.getValue());
+            }
+        }
+    }
+
+    public synchronized void invalidate(AbstractOrderByPoidAnd order) {
+        remove(OrderByPoidGeid.hashKeyOf(order.getPlatformOrderId(), order.getGlobalEntityId()));
+        String geidHashKey = geidHashKeyByGkHashKey.get(OrderByPoidGk.hashKeyOf(order.getPlatformOrderId(), order.getGlobalKey()));
+        if (geidHashKey != null) {
+            remove(geidHashKey);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private Entry get(String geidHashKey) {
+        Instant now = clock.instant();
+        Entry entry;
+        synchronized (this) {
+            entry = geidHashKey == null ? null : entries.get(geidHashKey);
+            if (entry != null && !entry.expiresAt.isAfter(now)) {
+                remove(geidHashKey);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    private void remove(String geidHashKey) {
+        Entry entry = entries.remove(geidHashKey);
+        if (entry != null) {
+            removeGkHashKey(geidHashKey, entry);
+        }
+    }
+
+    private void removeGkHashKey(String geidHashKey, Entry entry) {
+        geidHashKeyByGkHashKey.remove(OrderByPoidGk.hashKeyOf(entry.platformOrderId, entry.globalKey), geidHashKey);
+        bytes -= entry.bytes;
+    }
+
+    // immutable, so it can be read outside of the lock
+    private static class Entry {
+
+        private final String platformOrderId;
+        private final String globalEntityId;
+        private final String globalKey;
+        private final String orderJsonVersion;
+        private final Instant cleanupAfter;
+        private final Instant expiresAt;
+        private final long bytes;
+
+        Entry(String platformOrderId, String globalEntityId, String globalKey, String orderJsonVersion,
+              Instant cleanupAfter, Instant expiresAt) {
+            this.platformOrderId = platformOrderId;
+            this.globalEntityId = globalEntityId;
+            this.globalKey = globalKey;
+            this.orderJsonVersion = orderJsonVersion;
+            this.cleanupAfter = cleanupAfter;
+            this.expiresAt = expiresAt;
+            // 2 bytes per char, the key parts are held by the entry and by both hash keys
+            this.bytes = ENTRY_OVERHEAD_BYTES + 2L * (lengthOf(orderJsonVersion)
+                    + 3L * (lengthOf(platformOrderId) + lengthOf(globalEntityId) + lengthOf(globalKey)));
+        }
+
+        private static int lengthOf(String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+}
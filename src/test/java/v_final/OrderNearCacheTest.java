@@ -0,0 +1,110 @@
+package v_final;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderNearCacheTest {
+
+    @Test
+    public void testKeyedByBothHashKeys() {
+
+        OrderNearCache cache = new OrderNearCache(1_000_000, Duration.ofMinutes(5));
+        cache.put(new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))));
+
+        assertEquals("PY", cache.getByPoidGeid("1234", "PY_AR").getGlobalKey());
+        OrderByPoidGk orderByPoidGk = cache.getByPoidGk("1234", "PY");
+        assertEquals("PY_AR", orderByPoidGk.getGlobalEntityId());
+        assertEquals("grocery", orderByPoidGk.getOrderJsonVersion());
+        assertNull(cache.getByPoidGk("1234", "FOO"));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        cache.invalidate(orderByPoidGk);
+        assertNull(cache.getByPoidGeid("1234", "PY_AR"));
+        assertNull(cache.getByPoidGk("1234", "PY"));
+        assertEquals(0, cache.getBytes());
+
+        // slim guard (see OrderStore), no oJV
+        OrderByPoidGk guard = new OrderByPoidGk("1234", "PY_AR", "PY", null, Instant.now().plus(Duration.ofDays(30)));
+        guard.setSlimGuard(true);
+        cache.put(guard);
+        assertEquals(0, cache.size());
+
+        // no oJV, but no guard: the whole order
+        cache.put(new OrderByPoidGk("1234", "PY_AR", "PY", null, Instant.now().plus(Duration.ofDays(30))));
+        assertEquals(1, cache.size());
+        assertEquals("PY_AR", cache.getByPoidGk("1234", "PY").getGlobalEntityId());
+        assertNull(cache.getByPoidGk("1234", "PY").getOrderJsonVersion());
+    }
+
+    @Test
+    public void testExpiresAtCleanupAfterAndMaxAge() {
+
+        MutableClock clock = new MutableClock(Instant.parse("2020-11-01T12:00:00Z"));
+        OrderNearCache cache = new OrderNearCache(1_000_000, Duration.ofMinutes(5), clock);
+
+        cache.put(new OrderByPoidGeid("1", "PY_AR", "PY", "grocery", clock.instant().plus(Duration.ofMinutes(1))));
+        cache.put(new OrderByPoidGeid("2", "PY_AR", "PY", "grocery", clock.instant().plus(Duration.ofDays(30))));
+        // cleaned up already
+        cache.put(new OrderByPoidGeid("3", "PY_AR", "PY", "grocery", clock.instant().minus(Duration.ofMinutes(1))));
+        assertEquals(2, cache.size());
+
+        clock.now = clock.now.plus(Duration.ofMinutes(1));
+        assertNull(cache.getByPoidGk("1", "PY"));
+        assertNotNull(cache.getByPoidGk("2", "PY"));
+
+        clock.now = clock.now.plus(Duration.ofMinutes(4));
+        assertNull(cache.getByPoidGeid("2", "PY_AR"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBySize() {
+
+        OrderNearCache cache = new OrderNearCache(2_000, Duration.ofMinutes(5));
+        for (int i = 0; i < 100; i++) {
+            cache.put(new OrderByPoidGeid(String.valueOf(i), "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))));
+            // keep the first one hot
+            assertNotNull(cache.getByPoidGk("0", "PY"));
+        }
+
+        assertTrue(cache.getBytes() <= 2_000);
+        assertTrue(cache.size() < 100);
+        assertNotNull(cache.getByPoidGeid("99", "PY_AR"));
+        assertNull(cache.getByPoidGeid("1", "PY_AR"));
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/*
+reads only the requested attributes of an order (ProjectionExpression), without the mapper (no reflection, no entity):
+e.g. only oJV, or only the key for an existence check.
+
+note: DynamoDB charges the RCU by the size of the whole item, a projection does not make a read cheaper. it saves the
+transfer and the unmarshalling of the attributes not needed, which matters for bigger items (see README, ~5KB).
+ */
+public class OrderProjectionReader {
+
+    private final AmazonDynamoDB client;
+    private final OperationMetrics.Operation getItemOperation;
+
+    public OrderProjectionReader(AmazonDynamoDB client) {
+        this(client, null);
+    }
+
+    // metrics: null for none
+    public OrderProjectionReader(AmazonDynamoDB client, OperationMetrics metrics) {
+        this.client = client;
+        this.getItemOperation = (metrics != null ? metrics : OperationMetrics.NONE).operation("order.projectedGetItem");
+    }
+
+    // only the key is read
+    public boolean existsByPoidGeid(String platformOrderId, String globalEntityId) {
+        return getItem(OrderByPoidGeid.TABLE_NAME, "pOIDgEID", OrderByPoidGeid.hashKeyOf(platformOrderId, globalEntityId),
+                Set.of()) != null;
+    }
+
+    // only the key is read
+    public boolean existsByPoidGk(String platformOrderId, String globalKey) {
+        return getItem(OrderByPoidGk.TABLE_NAME, "pOIDgK", OrderByPoidGk.hashKeyOf(platformOrderId, globalKey),
+                Set.of()) != null;
+    }
+
+    // null, if not existing
+    public String loadOrderJsonVersion(String platformOrderId, String globalEntityId) {
+        OrderView order = loadByPoidGeid(platformOrderId, globalEntityId, Set.of(OrderAttribute.ORDER_JSON_VERSION));
+        return order == null ? null : order.getOrderJsonVersion();
+    }
+
+    // null, if not existing
+    public OrderView loadByPoidGeid(String platformOrderId, String globalEntityId, Set<OrderAttribute> attributes) {
+        Map<String, AttributeValue> item = getItem(OrderByPoidGeid.TABLE_NAME, "pOIDgEID",
+                OrderByPoidGeid.hashKeyOf(platformOrderId, globalEntityId), attributes);
+        if (item == null) {
+            return null;
+        }
+        return new OrderView(platformOrderId, globalEntityId, stringOf(item, "gK"), stringOf(item, "oJV"), instantOf(item, "ttl"));
+    }
+
+    /*
+    null, if not existing. gEID is always read: a slim guard (see OrderStore) is resolved via gEID, the same as the other
+    readers do, which costs a 2nd read.
+     */
+    public OrderView loadByPoidGk(String platformOrderId, String globalKey, Set<OrderAttribute> attributes) {
+        Map<String, AttributeValue> item = getItem(OrderByPoidGk.TABLE_NAME, "pOIDgK",
+                OrderByPoidGk.hashKeyOf(platformOrderId, globalKey), attributes,
+                "gEID", AbstractOrderByPoidAnd.SLIM_GUARD_ATTRIBUTE);
+        if (item == null) {
+            return null;
+        }
+        String globalEntityId = stringOf(item, "gEID");
+        if (isSlimGuard(item)) {
+            OrderView order = loadByPoidGeid(platformOrderId, globalEntityId, attributes);
+            return order == null ? null : new OrderView(platformOrderId, globalEntityId, globalKey,
+                    order.getOrderJsonVersion(), order.getCleanupAfter());
+        }
+        return new OrderView(platformOrderId, globalEntityId, globalKey, stringOf(item, "oJV"), instantOf(item, "ttl"));
+    }
+
+    // additionalAttributeNames: projected as well, e.g. to resolve a slim guard
+    private Map<String, AttributeValue> getItem(String tableName, String hashKeyName, String hashKey,
+                                                Set<OrderAttribute> attributes, String... additionalAttributeNames) {
+
+        // the key is always projected, so an existing item is never returned empty
+        Map<String, String> attributeNames = new HashMap<>();
+        StringJoiner projectionExpression = new StringJoiner(", ");
+        attributeNames.put("#k", hashKeyName);
+        projectionExpression.add("#k");
+        // each attribute once, DynamoDB rejects overlapping paths
+        Set<String> projected = new LinkedHashSet<>();
+        attributes.forEach(attribute -> projected.add(attribute.getAttributeName()));
+        projected.addAll(Arrays.asList(additionalAttributeNames));
+        int i = 0;
+        for (String attributeName : projected) {
+            String placeholder = "#a" + i++;
+            attributeNames.put(placeholder, attributeName);
+            projectionExpression.add(placeholder);
+        }
+
+        long start = getItemOperation.start();
+        try {
+            Map<String, AttributeValue> item = client.getItem(new GetItemRequest()
+                    .withTableName(tableName)
+                    .withKey(Map.of(hashKeyName, new AttributeValue(hashKey)))
+                    .withProjectionExpression(projectionExpression.toString())
+                    .withExpressionAttributeNames(attributeNames))
+                    .getItem();
+            getItemOperation.end(start, item == null ? 0 : 1);
+            return item;
+        } catch (RuntimeException e) {
+            getItemOperation.fail(start);
+            throw e;
+        }
+    }
+
+    // marked as the mapper writes Boolean.TRUE (see AbstractOrderByPoidAnd.isGuardOnly)
+    private static boolean isSlimGuard(Map<String, AttributeValue> item) {
+        AttributeValue value = item.get(AbstractOrderByPoidAnd.SLIM_GUARD_ATTRIBUTE);
+        return value != null && ("1".equals(value.getN()) || Boolean.TRUE.equals(value.getBOOL()));
+    }
+
+    private static String stringOf(Map<String, AttributeValue> item, String attributeName) {
+        AttributeValue value = item.get(attributeName);
+        return value == null ? null : value.getS();
+    }
+
+    private static Instant instantOf(Map<String, AttributeValue> item, String attributeName) {
+        AttributeValue value = item.get(attributeName);
+        return value == null ? null : Instant.ofEpochSecond(Long.parseLong(value.getN()));
+    }
+}
@@ -0,0 +1,267 @@
+package v_final;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/*
+the order reads and writes via the async client: the caller gets a CompletableFuture and is not blocked, so one thread
+can keep many requests in flight (pipelined).
+
+at most `maxInFlight` requests are sent at the same time, further requests wait in a queue (without blocking the
+caller) and are sent, when a request in flight completes. keep `maxInFlight` <= the max connections of the client
+(50 by default), otherwise the requests wait for a connection within the client.
+
+note: the async client of SDK v1 still runs each request on a thread of its executor (blocking IO), the threads of the
+callers are not blocked anymore though.
+
+with a RecentOrderKeyFilter, an insert of an order probably written by this node before (e.g. a redelivered message)
+is checked with a GetItem of the flagged keys first. a confirmed duplicate fails the same as the TX would (with a
+TransactionCanceledException and its cancellation reasons), without sending the TX. not found (a false positive or not
+replicated yet): the TX is sent, as without the filter.
+ */
+public class OrderRepository {
+
+    private final AmazonDynamoDBAsync asyncClient;
+    private final DynamoDBMapperTableModel<OrderByPoidGeid> orderByPoidGeidModel;
+    private final DynamoDBMapperTableModel<OrderByPoidGk> orderByPoidGkModel;
+    private final int maxInFlight;
+    private final RecentOrderKeyFilter recentOrderKeyFilter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder probableDuplicates = new LongAdder();
+    private final LongAdder confirmedDuplicates = new LongAdder();
+
+    public OrderRepository(AmazonDynamoDBAsync asyncClient, DynamoDBMapper mapper, int maxInFlight) {
+        this(asyncClient, mapper, maxInFlight, null);
+    }
+
+    // recentOrderKeyFilter: null for none
+    public OrderRepository(AmazonDynamoDBAsync asyncClient, DynamoDBMapper mapper, int maxInFlight,
+                           RecentOrderKeyFilter recentOrderKeyFilter) {
+        this.asyncClient = asyncClient;
+        this.orderByPoidGeidModel = mapper.getTableModel(OrderByPoidGeid.class);
+        this.orderByPoidGkModel = mapper.getTableModel(OrderByPoidGk.class);
+        this.maxInFlight = maxInFlight;
+        this.recentOrderKeyFilter = recentOrderKeyFilter;
+    }
+
+    // completes exceptionally with a TransactionCanceledException, if (pOID, gEID) or (pOID, gK) is existing already
+    public CompletableFuture<Void> insertUnique(OrderByPoidGeid orderByPoidGeid, OrderByPoidGk orderByPoidGk) {
+
+        if (recentOrderKeyFilter == null) {
+            return insertTransactional(orderByPoidGeid, orderByPoidGk);
+        }
+
+        boolean probableGeid = recentOrderKeyFilter.mightContain(OrderByPoidGeid.TABLE_NAME, orderByPoidGeid.getHashKey());
+        boolean probableGk = recentOrderKeyFilter.mightContain(OrderByPoidGk.TABLE_NAME, orderByPoidGk.getHashKey());
+        if (!probableGeid && !probableGk) {
+            return insertTransactional(orderByPoidGeid, orderByPoidGk);
+        }
+
+        probableDuplicates.increment();
+        CompletableFuture<Boolean> geidExisting = probableGeid
+                ? exists(OrderByPoidGeid.TABLE_NAME, "pOIDgEID", orderByPoidGeid.getHashKey())
+                : CompletableFuture.completedFuture(false);
+        CompletableFuture<Boolean> gkExisting = probableGk
+                ? exists(OrderByPoidGk.TABLE_NAME, "pOIDgK", orderByPoidGk.getHashKey())
+                : CompletableFuture.completedFuture(false);
+
+        return geidExisting.thenCombine(gkExisting, (geid, gk) -> new boolean[]{geid, gk})
+                .thenCompose(existing -> {
+                    if (!existing[0] && !existing[1]) {
+                        return insertTransactional(orderByPoidGeid, orderByPoidGk);
+                    }
+                    confirmedDuplicates.increment();
+                    return CompletableFuture.failedFuture(duplicate(existing[0], existing[1]));
+                });
+    }
+
+    private CompletableFuture<Void> insertTransactional(OrderByPoidGeid orderByPoidGeid, OrderByPoidGk orderByPoidGk) {
+
+        TransactWriteItemsRequest transactWriteItemsRequest = new TransactWriteItemsRequest().withTransactItems(
+                new TransactWriteItem().withPut(new Put()
+                        .withTableName(OrderByPoidGeid.TABLE_NAME)
+                        .withItem(orderByPoidGeidModel.convert(orderByPoidGeid))
+                        .withConditionExpression("attribute_not_exists(pOIDgEID)")),
+                new TransactWriteItem().withPut(new Put()
+                        .withTableName(OrderByPoidGk.TABLE_NAME)
+                        .withItem(orderByPoidGkModel.convert(orderByPoidGk))
+                        .withConditionExpression("attribute_not_exists(pOIDgK)")));
+
+        CompletableFuture<Void> insert = submit(transactWriteItemsRequest, asyncClient::transactWriteItemsAsync)
+                .thenApply(result -> null);
+        if (recentOrderKeyFilter == null) {
+            return insert;
+        }
+        return insert.whenComplete((result, exception) -> {
+            if (exception == null) {
+                recentOrderKeyFilter.add(OrderByPoidGeid.TABLE_NAME, orderByPoidGeid.getHashKey());
+                recentOrderKeyFilter.add(OrderByPoidGk.TABLE_NAME, orderByPoidGk.getHashKey());
+                return;
+            }
+            Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+            if (cause instanceof TransactionCanceledException) {
+                // the existing ones are remembered as well, the next redelivery is caught by the filter
+                List<CancellationReason> reasons = ((TransactionCanceledException) cause).getCancellationReasons();
+                if (reasons != null && reasons.size() == 2) {
+                    if ("ConditionalCheckFailed".equals(reasons.get(0).getCode())) {
+                        recentOrderKeyFilter.add(OrderByPoidGeid.TABLE_NAME, orderByPoidGeid.getHashKey());
+                    }
+                    if ("ConditionalCheckFailed".equals(reasons.get(1).getCode())) {
+                        recentOrderKeyFilter.add(OrderByPoidGk.TABLE_NAME, orderByPoidGk.getHashKey());
+                    }
+                }
+            }
+        });
+    }
+
+    // only the key is read (eventually consistent, 0.5 RCU)
+    private CompletableFuture<Boolean> exists(String tableName, String hashKeyName, String hashKey) {
+
+        GetItemRequest getItemRequest = new GetItemRequest()
+                .withTableName(tableName)
+                .withKey(Map.of(hashKeyName, new AttributeValue(hashKey)))
+                .withProjectionExpression("#k")
+                .withExpressionAttributeNames(Map.of("#k", hashKeyName));
+
+        return submit(getItemRequest, asyncClient::getItemAsync)
+                .thenApply(result -> result.getItem() != null);
+    }
+
+    // the same as DynamoDB would report for the insert TX
+    private static TransactionCanceledException duplicate(boolean geidExisting, boolean gkExisting) {
+        TransactionCanceledException e = new TransactionCanceledException(
+                "Transaction cancelled, order existing already (confirmed by GetItem)");
+        e.setCancellationReasons(List.of(reasonOf(geidExisting), reasonOf(gkExisting)));
+        return e;
+    }
+
+    private static CancellationReason reasonOf(boolean existing) {
+        return existing
+                ? new CancellationReason().withCode("ConditionalCheckFailed").withMessage("The conditional request failed")
+                : new CancellationReason().withCode("None");
+    }
+
+    // completes with null, if not existing
+    public CompletableFuture<OrderByPoidGeid> loadByPoidGeid(String platformOrderId, String globalEntityId) {
+
+        GetItemRequest getItemRequest = new GetItemRequest()
+                .withTableName(OrderByPoidGeid.TABLE_NAME)
+                .withKey(Map.of("pOIDgEID", new AttributeValue(OrderByPoidGeid.hashKeyOf(platformOrderId, globalEntityId))));
+
+        return submit(getItemRequest, asyncClient::getItemAsync)
+                .thenApply(result -> result.getItem() == null ? null : orderByPoidGeidModel.unconvert(result.getItem()));
+    }
+
+    // completes with null, if not existing. a slim guard (see OrderStore) is resolved via its gEID
+    public CompletableFuture<OrderByPoidGk> loadByPoidGk(String platformOrderId, String globalKey) {
+
+        GetItemRequest getItemRequest = new GetItemRequest()
+                .withTableName(OrderByPoidGk.TABLE_NAME)
+                .withKey(Map.of("pOIDgK", new AttributeValue(OrderByPoidGk.hashKeyOf(platformOrderId, globalKey))));
+
+        return submit(getItemRequest, asyncClient::getItemAsync)
+                .thenApply(result -> result.getItem() == null ? null : orderByPoidGkModel.unconvert(result.getItem()))
+                .thenCompose(guard -> {
+                    if (guard == null || !guard.isGuardOnly()) {
+                        return CompletableFuture.completedFuture(guard);
+                    }
+                    return loadByPoidGeid(platformOrderId, guard.getGlobalEntityId())
+                            .thenApply(order -> order == null ? null : new OrderByPoidGk(order.getPlatformOrderId(),
+                                    order.getGlobalEntityId(), order.getGlobalKey(), order.getOrderJsonVersion(),
+                                    order.getCleanupAfter()));
+                });
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // flagged by the filter
+    public long getProbableDuplicates() {
+        return probableDuplicates.sum();
+    }
+
+    // flagged by the filter and confirmed by GetItem, so no TX has been sent
+    public long getConfirmedDuplicates() {
+        return confirmedDuplicates.sum();
+    }
+
+    private <REQUEST extends AmazonWebServiceRequest, RESULT> CompletableFuture<RESULT> submit(
+            REQUEST request, BiFunction<REQUEST, AsyncHandler<REQUEST, RESULT>, Future<RESULT>> asyncCall) {
+
+        CompletableFuture<RESULT> result = new CompletableFuture<>();
+        waiting.add(() -> {
+            try {
+                asyncCall.apply(request, new AsyncHandler<REQUEST, RESULT>() {
+
+                    @Override
+                    public void onError(Exception exception) {
+                        release();
+                        result.completeExceptionally(exception);
+                    }
+
+                    @Override
+                    public void onSuccess(REQUEST request, RESULT response) {
+                        release();
+                        result.complete(response);
+                    }
+                });
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+            }
+        });
+        sendWaiting();
+        return result;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        sendWaiting();
+    }
+
+    // takes a permit per request. if no request is waiting, the permit is given back again
+    private void sendWaiting() {
+        while (!waiting.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                // sent, when a request in flight completes
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable send = waiting.poll();
+            if (send == null) {
+                // taken by another thread, check again for one added meanwhile
+                inFlight.decrementAndGet();
+                continue;
+            }
+            send.run();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsResult;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+inserts the orders in the given layout (see OrderLayout), both guards in 1 TX, the same as in OrderTest.
+reads from either layout via MigratingOrderReader.
+
+with slim guards, the (pOID, gK) item only contains its key, gEID, the ttl and the marker sG (GUARD_ATTRIBUTES), as it
+only exists to assert the uniqueness of (pOID, gK). the readers follow gEID to the full (pOID, gEID) item, which costs a 2nd read for
+the lookups by gK. so it pays off, as long as the orders are looked up by gK rarely compared to inserted (less storage,
+and fewer WCU, once the full item is > 1KB).
+note: OrderUpdates sets oJV in both items. the guard stays marked, so it is still resolved via gEID (correct, just
+not slim any more).
+ */
+public class OrderStore {
+
+    private final AmazonDynamoDB client;
+    private final OrderLayout layout;
+    private final boolean slimGuards;
+    private final DynamoDBMapperTableModel<OrderByPoidGeid> orderByPoidGeidModel;
+    private final DynamoDBMapperTableModel<OrderByPoidGk> orderByPoidGkModel;
+    private final DynamoDBMapperTableModel<OrderItem> orderItemModel;
+    private final OperationMetrics.Operation insertUniqueOperation;
+
+    public OrderStore(AmazonDynamoDB client, DynamoDBMapper mapper, OrderLayout layout) {
+        this(client, mapper, layout, false);
+    }
+
+    public OrderStore(AmazonDynamoDB client, DynamoDBMapper mapper, OrderLayout layout, boolean slimGuards) {
+        this(client, mapper, layout, slimGuards, null);
+    }
+
+    // metrics: null for none
+    public OrderStore(AmazonDynamoDB client, DynamoDBMapper mapper, OrderLayout layout, boolean slimGuards,
+                      OperationMetrics metrics) {
+        this.client = client;
+        this.layout = layout;
+        this.slimGuards = slimGuards;
+        this.orderByPoidGeidModel = mapper.getTableModel(OrderByPoidGeid.class);
+        this.orderByPoidGkModel = mapper.getTableModel(OrderByPoidGk.class);
+        this.orderItemModel = mapper.getTableModel(OrderItem.class);
+        this.insertUniqueOperation = (metrics != null ? metrics : OperationMetrics.NONE).operation("order.insertUnique");
+    }
+
+    public OrderLayout getLayout() {
+        return layout;
+    }
+
+    // throws a TransactionCanceledException, if (pOID, gEID) or (pOID, gK) is existing already. returns the consumed WCU
+    public double insertUnique(AbstractOrderByPoidAnd order) {
+
+        TransactWriteItemsRequest transactWriteItemsRequest = new TransactWriteItemsRequest()
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+
+        if (layout == OrderLayout.TWO_TABLES) {
+            OrderByPoidGeid orderByPoidGeid = new OrderByPoidGeid(order.getPlatformOrderId(), order.getGlobalEntityId(),
+                    order.getGlobalKey(), order.getOrderJsonVersion(), order.getCleanupAfter());
+            OrderByPoidGk orderByPoidGk = new OrderByPoidGk(order.getPlatformOrderId(), order.getGlobalEntityId(),
+                    order.getGlobalKey(), order.getOrderJsonVersion(), order.getCleanupAfter());
+            transactWriteItemsRequest.withTransactItems(
+                    new TransactWriteItem().withPut(new Put()
+                            .withTableName(OrderByPoidGeid.TABLE_NAME)
+                            .withItem(orderByPoidGeidModel.convert(orderByPoidGeid))
+                            .withConditionExpression("attribute_not_exists(pOIDgEID)")),
+                    new TransactWriteItem().withPut(new Put()
+                            .withTableName(OrderByPoidGk.TABLE_NAME)
+                            .withItem(guard(orderByPoidGkModel.convert(orderByPoidGk), OrderByPoidGk.GUARD_ATTRIBUTES))
+                            .withConditionExpression("attribute_not_exists(pOIDgK)")));
+        } else {
+            transactWriteItemsRequest.withTransactItems(
+                    new TransactWriteItem().withPut(new Put()
+                            .withTableName(OrderItem.TABLE_NAME)
+                            .withItem(orderItemModel.convert(OrderItem.byPoidGeid(order)))
+                            .withConditionExpression("attribute_not_exists(pk)")),
+                    new TransactWriteItem().withPut(new Put()
+                            .withTableName(OrderItem.TABLE_NAME)
+                            .withItem(guard(orderItemModel.convert(OrderItem.byPoidGk(order)), OrderItem.GUARD_ATTRIBUTES))
+                            .withConditionExpression("attribute_not_exists(pk)")));
+        }
+
+        TransactWriteItemsResult result;
+        long start = insertUniqueOperation.start();
+        try {
+            result = client.transactWriteItems(transactWriteItemsRequest);
+            insertUniqueOperation.end(start, 2);
+        } catch (RuntimeException e) {
+            insertUniqueOperation.fail(start);
+            throw e;
+        }
+        double writeCapacityUnits = 0;
+        if (result.getConsumedCapacity() != null) {
+            for (ConsumedCapacity consumedCapacity : result.getConsumedCapacity()) {
+                if (consumedCapacity.getCapacityUnits() != null) {
+                    writeCapacityUnits += consumedCapacity.getCapacityUnits();
+                }
+            }
+        }
+        return writeCapacityUnits;
+    }
+
+    private Map<String, AttributeValue> guard(Map<String, AttributeValue> item, Set<String> guardAttributes) {
+        return slimGuards ? slimGuardOf(item, guardAttributes) : item;
+    }
+
+    // the guard attributes of the full item, marked as slim guard (see AbstractOrderByPoidAnd.isGuardOnly)
+    public static Map<String, AttributeValue> slimGuardOf(Map<String, AttributeValue> item, Set<String> guardAttributes) {
+        Map<String, AttributeValue> guard = new HashMap<>(item);
+        // as the mapper writes Boolean.TRUE
+        guard.put(AbstractOrderByPoidAnd.SLIM_GUARD_ATTRIBUTE, new AttributeValue().withN("1"));
+        guard.keySet().retainAll(guardAttributes);
+        return guard;
+    }
+}
@@ -1,9 +1,12 @@
 package v_final;
 
+import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsyncClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
@@ -11,109 +14,53 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTransactionWriteExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedScanList;
 import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
-import com.amazonaws.services.dynamodbv2.local.main.ServerRunner;
-import com.amazonaws.services.dynamodbv2.local.server.DynamoDBProxyServer;
-import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
-import com.amazonaws.services.dynamodbv2.model.BillingMode;
-import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
-import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
-import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
-import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
-import com.amazonaws.services.dynamodbv2.model.KeyType;
-import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
-import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
 import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
-import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
-import com.amazonaws.waiters.WaiterParameters;
-import org.junit.jupiter.api.AfterAll;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import testsupport.DynamoDBLocalExtension;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class OrderTest {
 
-    private static DynamoDBProxyServer server;
+    // OrderItem: single table layout, see OrderLayout. Vendor: for the capacity accounting of its GSI
+    @RegisterExtension
+    static final DynamoDBLocalExtension dynamoDB = new DynamoDBLocalExtension(OrderByPoidGeid.class, OrderByPoidGk.class,
+            OrderItem.class, Vendor.class)
+            .withTimeToLiveAttribute("ttl");
+
     private static AmazonDynamoDB client;
     private static DynamoDBMapper mapper;
 
     @BeforeAll
-    public static void beforeAll() throws Exception {
-
-        System.setProperty("sqlite4java.library.path", "native-libs");
-        server = ServerRunner.createServerFromCommandLineArgs(new String[]{"-inMemory", "-port", "4566"});
-        server.start();
-
-        client = AmazonDynamoDBClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
-                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:4566", "eu-west-1"))
-                .build();
-
-        CreateTableRequest createTableRequest = new CreateTableRequest()
-                .withTableName(OrderByPoidGeid.TABLE_NAME)
-                .withAttributeDefinitions(new AttributeDefinition("pOIDgEID", ScalarAttributeType.S))
-                .withKeySchema(new KeySchemaElement("pOIDgEID", KeyType.HASH))
-                .withBillingMode(BillingMode.PAY_PER_REQUEST);
-
-        CreateTableResult createTableResult = client.createTable(createTableRequest);
-        System.out.println(createTableResult.getTableDescription());
-
-        client.waiters().tableExists().run(new WaiterParameters<>(new DescribeTableRequest(OrderByPoidGeid.TABLE_NAME)));
-        System.out.println("table " + OrderByPoidGeid.TABLE_NAME + " is ACTIVE now");
-
-        // not used actually
-        UpdateTimeToLiveRequest updateTimeToLiveRequest = new UpdateTimeToLiveRequest()
-                .withTableName(OrderByPoidGeid.TABLE_NAME)
-                .withTimeToLiveSpecification(new TimeToLiveSpecification()
-                        .withAttributeName("ttl")
-                        .withEnabled(true));
-        client.updateTimeToLive(updateTimeToLiveRequest);
-
-        createTableRequest = new CreateTableRequest()
-                .withTableName(OrderByPoidGk.TABLE_NAME)
-                .withAttributeDefinitions(new AttributeDefinition("pOIDgK", ScalarAttributeType.S))
-                .withKeySchema(new KeySchemaElement("pOIDgK", KeyType.HASH))
-                .withBillingMode(BillingMode.PAY_PER_REQUEST);
-
-        createTableResult = client.createTable(createTableRequest);
-        System.out.println(createTableResult.getTableDescription());
-
-        client.waiters().tableExists().run(new WaiterParameters<>(new DescribeTableRequest(OrderByPoidGk.TABLE_NAME)));
-        System.out.println("table " + OrderByPoidGeid.TABLE_NAME + " is ACTIVE now");
-
-        // not used actually
-        updateTimeToLiveRequest = new UpdateTimeToLiveRequest()
-                .withTableName(OrderByPoidGk.TABLE_NAME)
-                .withTimeToLiveSpecification(new TimeToLiveSpecification()
-                        .withAttributeName("ttl")
-                        .withEnabled(true));
-        client.updateTimeToLive(updateTimeToLiveRequest);
-
-        DynamoDBMapperConfig dynamoDBMapperConfig = DynamoDBMapperConfig.builder()
-                .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.EVENTUAL)
-                .build();
-        mapper = new DynamoDBMapper(client, dynamoDBMapperConfig);
-    }
-
-    @AfterEach
-    public void afterEach() {
-        PaginatedScanList<OrderByPoidGeid> allOrdersByPoidGeid = mapper.scan(OrderByPoidGeid.class, new DynamoDBScanExpression());
-        allOrdersByPoidGeid.forEach(order -> mapper.delete(order));
-        PaginatedScanList<OrderByPoidGk> allOrdersByPoidGk = mapper.scan(OrderByPoidGk.class, new DynamoDBScanExpression());
-        allOrdersByPoidGk.forEach(order -> mapper.delete(order));
-    }
-
-    @AfterAll
-    public static void afterAll() throws Exception {
-        client.deleteTable(OrderByPoidGeid.TABLE_NAME);
-        client.deleteTable(OrderByPoidGk.TABLE_NAME);
-        server.stop();
+    public static void beforeAll() {
+        client = dynamoDB.getClient();
+        mapper = dynamoDB.newMapper();
     }
 
     @Test
@@ -232,4 +179,487 @@ public class OrderTest {
         assertEquals(orderByPoidGk.getPlatformOrderId(), fetchedOrderByPoidGk.getPlatformOrderId());
         assertEquals(orderByPoidGk.getTtl(), fetchedOrderByPoidGk.getTtl());
     }
+
+    @Test
+    public void testUpdateOrderJsonVersion() {
+
+        OrderByPoidGeid orderByPoidGeid = new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)));
+        OrderByPoidGk orderByPoidGk = new OrderByPoidGk("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)));
+
+        TransactionWriteRequest transactionWriteRequest = new TransactionWriteRequest()
+                .addPut(orderByPoidGeid, new DynamoDBTransactionWriteExpression().withConditionExpression("attribute_not_exists(pOIDgEID)"))
+                .addPut(orderByPoidGk, new DynamoDBTransactionWriteExpression().withConditionExpression("attribute_not_exists(pOIDgK)"));
+
+        mapper.transactionWrite(transactionWriteRequest);
+
+        OrderUpdates orderUpdates = new OrderUpdates(client);
+        orderUpdates.updateOrderJsonVersion(orderByPoidGeid, "restaurant");
+
+        OrderByPoidGeid fetchedOrderByPoidGeid = mapper.load(OrderByPoidGeid.class, orderByPoidGeid.getHashKey());
+        assertEquals("restaurant", fetchedOrderByPoidGeid.getOrderJsonVersion());
+        assertEquals(orderByPoidGeid.getTtl(), fetchedOrderByPoidGeid.getTtl());
+        assertEquals(orderByPoidGeid.getGlobalKey(), fetchedOrderByPoidGeid.getGlobalKey());
+
+        OrderByPoidGk fetchedOrderByPoidGk = mapper.load(OrderByPoidGk.class, orderByPoidGk.getHashKey());
+        assertEquals("restaurant", fetchedOrderByPoidGk.getOrderJsonVersion());
+        assertEquals(orderByPoidGk.getTtl(), fetchedOrderByPoidGk.getTtl());
+        assertEquals(orderByPoidGk.getGlobalEntityId(), fetchedOrderByPoidGk.getGlobalEntityId());
+
+        // not existing order -> nothing created
+        OrderByPoidGeid notExisting = new OrderByPoidGeid("5678", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)));
+        assertThrows(TransactionCanceledException.class, () -> orderUpdates.updateOrderJsonVersion(notExisting, "restaurant"));
+        assertEquals(1, mapper.scan(OrderByPoidGeid.class, new DynamoDBScanExpression()).size());
+        assertEquals(1, mapper.scan(OrderByPoidGk.class, new DynamoDBScanExpression()).size());
+    }
+
+    @Test
+    public void testGroupCommitIsolatesDuplicates() throws Exception {
+
+        List<CompletableFuture<Void>> inserts = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> duplicateInserts = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        // 12 orders = 24 items, DynamoDB local allows 25 items per TX
+        try (OrderIngestService orderIngestService = new OrderIngestService(mapper, 12, 2000)) {
+            List<Future<?>> submitted = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String poid = String.valueOf(i);
+                submitted.add(callers.submit(() -> inserts.add(orderIngestService.insert(
+                        new OrderByPoidGeid(poid, "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))),
+                        new OrderByPoidGk(poid, "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)))))));
+                if (i % 5 == 0) {
+                    // same (pOID, gEID), other gK
+                    submitted.add(callers.submit(() -> duplicateInserts.add(orderIngestService.insert(
+                            new OrderByPoidGeid(poid, "PY_AR", "FOO", "grocery", Instant.now().plus(Duration.ofDays(30))),
+                            new OrderByPoidGk(poid, "PY_AR", "FOO", "grocery", Instant.now().plus(Duration.ofDays(30)))))));
+                }
+            }
+            for (Future<?> future : submitted) {
+                future.get();
+            }
+        } finally {
+            callers.shutdown();
+        }
+
+        List<CompletableFuture<Void>> all = new ArrayList<>(inserts);
+        all.addAll(duplicateInserts);
+        long failed = all.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+        assertEquals(10, failed);
+        all.stream().filter(CompletableFuture::isCompletedExceptionally).forEach(insert -> {
+            CompletionException e = assertThrows(CompletionException.class, insert::join);
+            assertEquals(TransactionCanceledException.class, e.getCause().getClass());
+        });
+
+        assertEquals(50, mapper.scan(OrderByPoidGeid.class, new DynamoDBScanExpression()).size());
+        assertEquals(50, mapper.scan(OrderByPoidGk.class, new DynamoDBScanExpression()).size());
+    }
+
+    @Test
+    public void testGroupCommitRetriesConflictsAndFailsInvalidOrders() throws Exception {
+
+        // the first 2 TXs are cancelled by a conflicting TX, orders "invalid..." by a ValidationError
+        AmazonDynamoDB cancellingClient = clientCancellingTransactions(2);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Void>> inserts = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> invalidInserts = Collections.synchronizedList(new ArrayList<>());
+        OperationMetrics metrics = new OperationMetrics();
+        try (OrderIngestService orderIngestService = new OrderIngestService(
+                new DynamoDBMapper(cancellingClient), 12, 2000, 5, 1, metrics)) {
+            List<Future<?>> submitted = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String poid = "ingest" + i;
+                submitted.add(callers.submit(() -> inserts.add(orderIngestService.insert(
+                        new OrderByPoidGeid(poid, "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))),
+                        new OrderByPoidGk(poid, "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)))))));
+                if (i % 5 == 0) {
+                    String invalidPoid = "invalid" + i;
+                    submitted.add(callers.submit(() -> invalidInserts.add(orderIngestService.insert(
+                            new OrderByPoidGeid(invalidPoid, "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))),
+                            new OrderByPoidGk(invalidPoid, "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)))))));
+                }
+            }
+            for (Future<?> future : submitted) {
+                future.get();
+            }
+        } finally {
+            callers.shutdown();
+            cancellingClient.shutdown();
+        }
+
+        // conflicts are retried
+        inserts.forEach(CompletableFuture::join);
+        for (int i = 0; i < 20; i++) {
+            OrderByPoidGeid orderByPoidGeid = new OrderByPoidGeid("ingest" + i, "PY_AR", "PY", "grocery", Instant.now());
+            assertEquals("PY", mapper.load(OrderByPoidGeid.class, orderByPoidGeid.getHashKey()).getGlobalKey());
+        }
+
+        // not a duplicate: no TransactionCanceledException for the caller
+        assertEquals(4, invalidInserts.size());
+        invalidInserts.forEach(insert -> {
+            CompletionException e = assertThrows(CompletionException.class, insert::join);
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+            assertEquals(TransactionCanceledException.class, e.getCause().getCause().getClass());
+        });
+
+        // each valid order committed once, the 2 conflicts retried by the committer
+        OperationMetrics.Operation commit = metrics.operation("order.ingestCommit");
+        assertEquals(20, commit.getItems());
+        assertEquals(2, commit.getRetries());
+        assertEquals(0, commit.getErrors());
+    }
+
+    /*
+    cancels TransactWriteItems requests before they are sent, with 1 reason per item as DynamoDB does: the first
+    conflictingTransactions ones due to a TransactionConflict, the others if they contain an order "invalid...".
+     */
+    private static AmazonDynamoDB clientCancellingTransactions(int conflictingTransactions) {
+        AtomicInteger transactions = new AtomicInteger();
+        return AmazonDynamoDBClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(dynamoDB.getEndpointConfiguration())
+                .withRequestHandlers(new RequestHandler2() {
+                    @Override
+                    public AmazonWebServiceRequest beforeExecution(AmazonWebServiceRequest request) {
+                        if (!(request instanceof TransactWriteItemsRequest)) {
+                            return request;
+                        }
+                        boolean conflict = transactions.incrementAndGet() <= conflictingTransactions;
+                        boolean cancelled = conflict;
+                        List<CancellationReason> reasons = new ArrayList<>();
+                        for (TransactWriteItem item : ((TransactWriteItemsRequest) request).getTransactItems()) {
+                            String code = "None";
+                            if (conflict) {
+                                code = "TransactionConflict";
+                            } else if (isInvalid(item.getPut().getItem())) {
+                                code = "ValidationError";
+                                cancelled = true;
+                            }
+                            reasons.add(new CancellationReason().withCode(code));
+                        }
+                        if (!cancelled) {
+                            return request;
+                        }
+                        TransactionCanceledException e = new TransactionCanceledException("injected cancellation");
+                        e.setCancellationReasons(reasons);
+                        throw e;
+                    }
+                })
+                .build();
+    }
+
+    private static boolean isInvalid(Map<String, AttributeValue> item) {
+        AttributeValue hashKey = item.containsKey("pOIDgEID") ? item.get("pOIDgEID") : item.get("pOIDgK");
+        return hashKey.getS().startsWith("invalid");
+    }
+
+    @Test
+    public void testAsyncOrderRepository() {
+
+        AmazonDynamoDBAsync asyncClient = AmazonDynamoDBAsyncClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(dynamoDB.getEndpointConfiguration())
+                .build();
+        try {
+            OrderRepository orderRepository = new OrderRepository(asyncClient, mapper, 16);
+
+            // all sent from this thread, without waiting
+            List<CompletableFuture<Void>> inserts = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String poid = String.valueOf(i);
+                inserts.add(orderRepository.insertUnique(
+                        new OrderByPoidGeid(poid, "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))),
+                        new OrderByPoidGk(poid, "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)))));
+            }
+            CompletableFuture.allOf(inserts.toArray(new CompletableFuture[0])).join();
+            assertEquals(0, orderRepository.getInFlight());
+
+            CompletableFuture<Void> duplicate = orderRepository.insertUnique(
+                    new OrderByPoidGeid("42", "PY_AR", "FOO", "grocery", Instant.now().plus(Duration.ofDays(30))),
+                    new OrderByPoidGk("42", "PY_AR", "FOO", "grocery", Instant.now().plus(Duration.ofDays(30))));
+            CompletionException e = assertThrows(CompletionException.class, duplicate::join);
+            assertEquals(TransactionCanceledException.class, e.getCause().getClass());
+
+            OrderByPoidGeid orderByPoidGeid = orderRepository.loadByPoidGeid("42", "PY_AR").join();
+            assertEquals("PY", orderByPoidGeid.getGlobalKey());
+            assertEquals("grocery", orderByPoidGeid.getOrderJsonVersion());
+            OrderByPoidGk orderByPoidGk = orderRepository.loadByPoidGk("42", "PY").join();
+            assertEquals("PY_AR", orderByPoidGk.getGlobalEntityId());
+            assertNull(orderRepository.loadByPoidGk("42", "FOO").join());
+
+            assertEquals(100, mapper.scan(OrderByPoidGeid.class, new DynamoDBScanExpression()).size());
+            assertEquals(100, mapper.scan(OrderByPoidGk.class, new DynamoDBScanExpression()).size());
+        } finally {
+            asyncClient.shutdown();
+        }
+    }
+
+    @Test
+    public void testDuplicateConfirmedByRead() {
+
+        AmazonDynamoDBAsync asyncClient = AmazonDynamoDBAsyncClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(dynamoDB.getEndpointConfiguration())
+                .build();
+        try {
+            OrderRepository orderRepository = new OrderRepository(asyncClient, mapper, 16,
+                    new RecentOrderKeyFilter(1000, 0.01, Duration.ofHours(1)));
+
+            orderRepository.insertUnique(
+                    new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))),
+                    new OrderByPoidGk("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)))).join();
+
+            // redelivered -> rejected after a GetItem, no TX
+            CompletableFuture<Void> redelivered = orderRepository.insertUnique(
+                    new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))),
+                    new OrderByPoidGk("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))));
+            CompletionException e = assertThrows(CompletionException.class, redelivered::join);
+            assertEquals(TransactionCanceledException.class, e.getCause().getClass());
+            assertEquals("ConditionalCheckFailed",
+                    ((TransactionCanceledException) e.getCause()).getCancellationReasons().get(0).getCode());
+            assertEquals(1, orderRepository.getConfirmedDuplicates());
+
+            // flagged, but deleted meanwhile (e.g. by TTL) -> inserted by TX
+            mapper.delete(mapper.load(OrderByPoidGeid.class, "1234<<>>PY_AR"));
+            mapper.delete(mapper.load(OrderByPoidGk.class, "1234<<>>PY"));
+            orderRepository.insertUnique(
+                    new OrderByPoidGeid("1234", "PY_AR", "PY", "restaurant", Instant.now().plus(Duration.ofDays(30))),
+                    new OrderByPoidGk("1234", "PY_AR", "PY", "restaurant", Instant.now().plus(Duration.ofDays(30)))).join();
+            assertEquals(2, orderRepository.getProbableDuplicates());
+            assertEquals(1, orderRepository.getConfirmedDuplicates());
+            assertEquals("restaurant", mapper.load(OrderByPoidGeid.class, "1234<<>>PY_AR").getOrderJsonVersion());
+        } finally {
+            asyncClient.shutdown();
+        }
+    }
+
+    @Test
+    public void testSingleTableLayoutAndMigration() {
+
+        OrderStore twoTables = new OrderStore(client, mapper, OrderLayout.TWO_TABLES);
+        OrderStore singleTable = new OrderStore(client, mapper, OrderLayout.SINGLE_TABLE);
+
+        // inserted before the migration
+        twoTables.insertUnique(new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))));
+        // inserted after
+        singleTable.insertUnique(new OrderByPoidGeid("5678", "PY_AR", "PY", "restaurant", Instant.now().plus(Duration.ofDays(30))));
+        assertEquals(2, mapper.scan(OrderItem.class, new DynamoDBScanExpression()).size());
+
+        // uniqueness of both guards within the single table
+        assertThrows(TransactionCanceledException.class, () -> singleTable.insertUnique(
+                new OrderByPoidGeid("5678", "PY_AR", "FOO", "restaurant", Instant.now().plus(Duration.ofDays(30)))));
+        assertThrows(TransactionCanceledException.class, () -> singleTable.insertUnique(
+                new OrderByPoidGeid("5678", "FOO", "PY", "restaurant", Instant.now().plus(Duration.ofDays(30)))));
+        assertEquals(2, mapper.scan(OrderItem.class, new DynamoDBScanExpression()).size());
+
+        MigratingOrderReader reader = new MigratingOrderReader(mapper, OrderLayout.SINGLE_TABLE);
+        OrderByPoidGeid migrated = reader.loadByPoidGeid("5678", "PY_AR");
+        assertEquals("PY", migrated.getGlobalKey());
+        assertEquals("restaurant", migrated.getOrderJsonVersion());
+        assertEquals("PY_AR", reader.loadByPoidGk("5678", "PY").getGlobalEntityId());
+        assertEquals(0, reader.getFallbackHits());
+
+        assertEquals("grocery", reader.loadByPoidGeid("1234", "PY_AR").getOrderJsonVersion());
+        assertEquals("PY_AR", reader.loadByPoidGk("1234", "PY").getGlobalEntityId());
+        assertEquals(2, reader.getFallbackHits());
+        assertNull(reader.loadByPoidGk("1234", "FOO"));
+    }
+
+    @Test
+    public void testSlimGuards() {
+
+        new OrderStore(client, mapper, OrderLayout.TWO_TABLES, true)
+                .insertUnique(new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))));
+        new OrderStore(client, mapper, OrderLayout.SINGLE_TABLE, true)
+                .insertUnique(new OrderByPoidGeid("5678", "PY_AR", "PY", "restaurant", Instant.now().plus(Duration.ofDays(30))));
+
+        Map<String, AttributeValue> guard = client.getItem(OrderByPoidGk.TABLE_NAME,
+                Map.of("pOIDgK", new AttributeValue("1234<<>>PY"))).getItem();
+        assertEquals(OrderByPoidGk.GUARD_ATTRIBUTES, guard.keySet());
+        guard = client.getItem(OrderItem.TABLE_NAME,
+                Map.of("pk", new AttributeValue(OrderItem.hashKeyByPoidGk("5678", "PY")))).getItem();
+        assertEquals(OrderItem.GUARD_ATTRIBUTES, guard.keySet());
+
+        // still unique
+        assertThrows(TransactionCanceledException.class, () -> new OrderStore(client, mapper, OrderLayout.TWO_TABLES, true)
+                .insertUnique(new OrderByPoidGeid("1234", "FOO", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)))));
+
+        // resolved via gEID
+        OrderByPoidGk order = new MigratingOrderReader(mapper, OrderLayout.SINGLE_TABLE).loadByPoidGk("1234", "PY");
+        assertEquals("PY_AR", order.getGlobalEntityId());
+        assertEquals("grocery", order.getOrderJsonVersion());
+        order = new MigratingOrderReader(mapper, OrderLayout.TWO_TABLES).loadByPoidGk("5678", "PY");
+        assertEquals("restaurant", order.getOrderJsonVersion());
+
+        // marked explicitly: a full item without oJV is no guard
+        new OrderStore(client, mapper, OrderLayout.TWO_TABLES)
+                .insertUnique(new OrderByPoidGeid("9012", "PY_AR", "PY", null, Instant.now().plus(Duration.ofDays(30))));
+        OrderByPoidGk withoutVersion = mapper.load(OrderByPoidGk.class, OrderByPoidGk.hashKeyOf("9012", "PY"));
+        assertFalse(withoutVersion.isGuardOnly());
+        assertTrue(mapper.load(OrderByPoidGk.class, OrderByPoidGk.hashKeyOf("1234", "PY")).isGuardOnly());
+    }
+
+    @Test
+    public void testBatchedLookups() {
+
+        OrderStore orderStore = new OrderStore(client, mapper, OrderLayout.TWO_TABLES);
+        OrderStore slimOrderStore = new OrderStore(client, mapper, OrderLayout.TWO_TABLES, true);
+        List<String> geidHashKeys = new ArrayList<>();
+        List<String> gkHashKeys = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            OrderByPoidGeid order = new OrderByPoidGeid(String.valueOf(i), "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)));
+            (i % 10 == 0 ? slimOrderStore : orderStore).insertUnique(order);
+            geidHashKeys.add(OrderByPoidGeid.hashKeyOf(String.valueOf(i), "PY_AR"));
+            gkHashKeys.add(OrderByPoidGk.hashKeyOf(String.valueOf(i), "PY"));
+        }
+        // not existing and duplicates
+        geidHashKeys.add(OrderByPoidGeid.hashKeyOf("1234", "PY_AR"));
+        geidHashKeys.add(OrderByPoidGeid.hashKeyOf("1", "PY_AR"));
+        gkHashKeys.add(OrderByPoidGk.hashKeyOf("1", "FOO"));
+        gkHashKeys.add(OrderByPoidGk.hashKeyOf("1", "PY"));
+
+        OrderBatchReader orderBatchReader = new OrderBatchReader(client, mapper);
+
+        List<OrderByPoidGeid> streamed = new ArrayList<>();
+        assertEquals(0, orderBatchReader.loadByPoidGeid(geidHashKeys, streamed::add).size());
+        assertEquals(150, streamed.size());
+
+        Map<String, OrderByPoidGk> ordersByPoidGk = orderBatchReader.loadAllByPoidGk(gkHashKeys);
+        assertEquals(150, ordersByPoidGk.size());
+        // slim guard, resolved via gEID
+        assertEquals("grocery", ordersByPoidGk.get(OrderByPoidGk.hashKeyOf("10", "PY")).getOrderJsonVersion());
+        assertEquals("PY_AR", ordersByPoidGk.get(OrderByPoidGk.hashKeyOf("10", "PY")).getGlobalEntityId());
+        assertEquals("grocery", ordersByPoidGk.get(OrderByPoidGk.hashKeyOf("11", "PY")).getOrderJsonVersion());
+    }
+
+    @Test
+    public void testNearCache() {
+
+        OrderNearCache orderNearCache = new OrderNearCache(1_000_000, Duration.ofMinutes(5));
+        MigratingOrderReader reader = new MigratingOrderReader(mapper, OrderLayout.TWO_TABLES, orderNearCache);
+        OrderUpdates orderUpdates = new OrderUpdates(client, orderNearCache);
+
+        new OrderStore(client, mapper, OrderLayout.TWO_TABLES)
+                .insertUnique(new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30))));
+
+        OrderByPoidGeid order = reader.loadByPoidGeid("1234", "PY_AR");
+        assertEquals(0, orderNearCache.getHits());
+        // loaded by gEID, found by gK
+        assertEquals("grocery", reader.loadByPoidGk("1234", "PY").getOrderJsonVersion());
+        assertEquals(1, orderNearCache.getHits());
+
+        // written through
+        orderUpdates.updateOrderJsonVersion(order, "restaurant");
+        assertEquals("restaurant", reader.loadByPoidGk("1234", "PY").getOrderJsonVersion());
+        assertEquals(2, orderNearCache.getHits());
+
+        // invalidated on failure
+        OrderByPoidGeid notExisting = new OrderByPoidGeid("5678", "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)));
+        orderNearCache.put(notExisting);
+        assertThrows(TransactionCanceledException.class, () -> orderUpdates.updateOrderJsonVersion(notExisting, "restaurant"));
+        assertNull(reader.loadByPoidGeid("5678", "PY_AR"));
+    }
+
+    @Test
+    public void testProjectedReads() {
+
+        Instant cleanupAfter = Instant.now().plus(Duration.ofDays(30));
+        new OrderStore(client, mapper, OrderLayout.TWO_TABLES)
+                .insertUnique(new OrderByPoidGeid("1234", "PY_AR", "PY", "grocery", cleanupAfter));
+
+        OrderProjectionReader reader = new OrderProjectionReader(client);
+        assertEquals(true, reader.existsByPoidGeid("1234", "PY_AR"));
+        assertEquals(true, reader.existsByPoidGk("1234", "PY"));
+        assertEquals(false, reader.existsByPoidGeid("1234", "FOO"));
+        assertEquals("grocery", reader.loadOrderJsonVersion("1234", "PY_AR"));
+        assertNull(reader.loadOrderJsonVersion("5678", "PY_AR"));
+
+        OrderView order = reader.loadByPoidGk("1234", "PY", Set.of(OrderAttribute.GLOBAL_ENTITY_ID, OrderAttribute.TTL));
+        assertEquals("PY_AR", order.getGlobalEntityId());
+        assertEquals(cleanupAfter.getEpochSecond(), order.getCleanupAfter().getEpochSecond());
+        // not projected
+        assertNull(order.getOrderJsonVersion());
+
+        // slim guard: resolved via gEID
+        new OrderStore(client, mapper, OrderLayout.TWO_TABLES, true)
+                .insertUnique(new OrderByPoidGeid("5678", "PY_AR", "PY", "restaurant", cleanupAfter));
+        order = reader.loadByPoidGk("5678", "PY", Set.of(OrderAttribute.ORDER_JSON_VERSION, OrderAttribute.GLOBAL_KEY));
+        assertEquals("PY_AR", order.getGlobalEntityId());
+        assertEquals("PY", order.getGlobalKey());
+        assertEquals("restaurant", order.getOrderJsonVersion());
+        assertNull(order.getCleanupAfter());
+        assertTrue(reader.existsByPoidGk("5678", "PY"));
+        assertNull(reader.loadByPoidGk("5678", "FOO", Set.of(OrderAttribute.ORDER_JSON_VERSION)));
+    }
+
+    @Test
+    public void testCapacityAccounting() throws Exception {
+
+        CapacityAccounting capacityAccounting = new CapacityAccounting();
+        AmazonDynamoDB accountingClient = AmazonDynamoDBClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(dynamoDB.getEndpointConfiguration())
+                .withRequestHandlers(capacityAccounting.requestHandler())
+                .build();
+        AmazonDynamoDBAsync accountingAsyncClient = AmazonDynamoDBAsyncClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(dynamoDB.getEndpointConfiguration())
+                .withRequestHandlers(capacityAccounting.requestHandler())
+                .build();
+        DynamoDBMapper accountingMapper = new DynamoDBMapper(accountingClient, DynamoDBMapperConfig.builder()
+                .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.EVENTUAL)
+                .build());
+        OrderStore orderStore = new OrderStore(accountingClient, accountingMapper, OrderLayout.TWO_TABLES);
+
+        double reportedUnits = 0;
+        for (int i = 0; i < 10; i++) {
+            OrderByPoidGeid order = new OrderByPoidGeid(String.valueOf(i), "PY_AR", "PY", "grocery", Instant.now().plus(Duration.ofDays(30)));
+            reportedUnits += capacityAccounting.withOperation("order insert", () -> orderStore.insertUnique(order));
+        }
+        // via the mapper
+        capacityAccounting.withOperation("order load", () -> accountingMapper.load(OrderByPoidGeid.class, OrderByPoidGeid.hashKeyOf("1", "PY_AR")));
+
+        // the request of the caller is not modified
+        GetItemRequest getItemRequest = new GetItemRequest()
+                .withTableName(OrderByPoidGeid.TABLE_NAME)
+                .withKey(Map.of("pOIDgEID", new AttributeValue(OrderByPoidGeid.hashKeyOf("2", "PY_AR"))));
+        capacityAccounting.withOperation("order load async", () -> accountingAsyncClient.getItemAsync(getItemRequest)).get();
+        assertNull(getItemRequest.getReturnConsumedCapacity());
+
+        // the query of the GSI and the writes to it
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(accountingClient);
+        Instant now = Instant.now();
+        capacityAccounting.withOperation("vendor reconcile", () -> vendorListenerLogic.update(
+                Set.of(new Vendor("a", "LH", "1234", now, "config"), new Vendor("b", "LH", "1234", now, "config")),
+                "1234", now));
+
+        CapacityAccounting.Usage insert = capacityAccounting.getUsageByOperation().get("order insert");
+        assertEquals(10, insert.getCalls());
+        assertTrue(insert.getTransactionalWriteUnits() > 0);
+        assertEquals(reportedUnits, insert.getTransactionalWriteUnits(), 0.001);
+        assertEquals(0, insert.getWriteUnits());
+
+        // split by table
+        assertEquals(insert.getTransactionalWriteUnits(),
+                capacityAccounting.getUsageByTable().get(OrderByPoidGeid.TABLE_NAME).getTransactionalWriteUnits()
+                        + capacityAccounting.getUsageByTable().get(OrderByPoidGk.TABLE_NAME).getTransactionalWriteUnits(), 0.001);
+
+        CapacityAccounting.Usage load = capacityAccounting.getUsageByOperation().get("order load");
+        assertEquals(1, load.getCalls());
+        assertTrue(load.getReadUnits() > 0);
+        assertTrue(capacityAccounting.getUsageByOperation().get("order load async").getReadUnits() > 0);
+
+        CapacityAccounting.Usage reconcile = capacityAccounting.getUsageByOperation().get("vendor reconcile");
+        assertEquals(1, reconcile.getCalls());
+        assertTrue(reconcile.getReadUnits() > 0);
+        assertTrue(reconcile.getWriteUnits() > 0);
+        CapacityAccounting.Usage vendorGsi = capacityAccounting.getUsageByIndex().get("vendor.rVIDGsi");
+        assertTrue(vendorGsi.getReadUnits() > 0);
+        assertTrue(vendorGsi.getWriteUnits() > 0);
+
+        System.out.println("order insert: " + insert + ", ~" + String.format("%.2f", capacityAccounting.projectMonthlyCost("order insert", 11_000_000)) + "$ per month for 11 mio orders");
+        assertTrue(capacityAccounting.projectMonthlyCost("order insert", 11_000_000) > 0);
+
+        accountingClient.shutdown();
+        accountingAsyncClient.shutdown();
+    }
 }
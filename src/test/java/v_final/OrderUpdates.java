@@ -0,0 +1,77 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+
+import java.util.Map;
+
+/*
+the order items are inserted once (see OrderTest), the only attribute changing afterwards is the order json version.
+instead of saving both items completely via the mapper, only "oJV" is updated in both tables, in 1 TX.
+the new oJV is written through to the OrderNearCache, if any.
+ */
+public class OrderUpdates {
+
+    private final AmazonDynamoDB client;
+    private final OrderNearCache orderNearCache;
+    private final OperationMetrics.Operation updateOperation;
+
+    public OrderUpdates(AmazonDynamoDB client) {
+        this(client, null);
+    }
+
+    // orderNearCache: null for none
+    public OrderUpdates(AmazonDynamoDB client, OrderNearCache orderNearCache) {
+        this(client, orderNearCache, null);
+    }
+
+    // orderNearCache, metrics: null for none
+    public OrderUpdates(AmazonDynamoDB client, OrderNearCache orderNearCache, OperationMetrics metrics) {
+        this.client = client;
+        this.orderNearCache = orderNearCache;
+        this.updateOperation = (metrics != null ? metrics : OperationMetrics.NONE).operation("order.updateOrderJsonVersion");
+    }
+
+    // throws a TransactionCanceledException, if the order is not existing (in one of the tables)
+    public void updateOrderJsonVersion(AbstractOrderByPoidAnd order, String orderJsonVersion) {
+
+        OrderByPoidGeid orderByPoidGeid = new OrderByPoidGeid(order.getPlatformOrderId(), order.getGlobalEntityId(),
+                order.getGlobalKey(), orderJsonVersion, order.getCleanupAfter());
+        OrderByPoidGk orderByPoidGk = new OrderByPoidGk(order.getPlatformOrderId(), order.getGlobalEntityId(),
+                order.getGlobalKey(), orderJsonVersion, order.getCleanupAfter());
+
+        AttributeValue oJV = new AttributeValue(orderJsonVersion);
+
+        long start = updateOperation.start();
+        try {
+            transactWriteItems(orderByPoidGeid, orderByPoidGk, oJV);
+            updateOperation.end(start, 2);
+        } catch (RuntimeException e) {
+            updateOperation.fail(start);
+            // not existing, or unknown whether updated
+            if (orderNearCache != null) {
+                orderNearCache.invalidate(order);
+            }
+            throw e;
+        }
+        if (orderNearCache != null) {
+            orderNearCache.put(orderByPoidGeid);
+        }
+    }
+
+    private void transactWriteItems(OrderByPoidGeid orderByPoidGeid, OrderByPoidGk orderByPoidGk, AttributeValue oJV) {
+        client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(
+                new TransactWriteItem().withUpdate(
+                        PartialUpdate.of(OrderByPoidGeid.TABLE_NAME, "pOIDgEID", orderByPoidGeid.getHashKey())
+                                .set("oJV", oJV)
+                                .withCondition("attribute_exists(pOIDgEID)", Map.of())
+                                .toTransactUpdate()),
+                new TransactWriteItem().withUpdate(
+                        PartialUpdate.of(OrderByPoidGk.TABLE_NAME, "pOIDgK", orderByPoidGk.getHashKey())
+                                .set("oJV", oJV)
+                                .withCondition("attribute_exists(pOIDgK)", Map.of())
+                                .toTransactUpdate())));
+    }
+}
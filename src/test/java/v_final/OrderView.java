@@ -0,0 +1,56 @@
+package v_final;
+
+import java.time.Instant;
+
+/*
+read-only view of the attributes of an order, which have been read by an OrderProjectionReader. attributes which have
+not been projected are null. pOID and the key part of the table (gEID or gK) are always set, gEID of a (pOID, gK) item
+as well.
+ */
+public class OrderView {
+
+    private final String platformOrderId;
+    private final String globalEntityId;
+    private final String globalKey;
+    private final String orderJsonVersion;
+    private final Instant cleanupAfter;
+
+    OrderView(String platformOrderId, String globalEntityId, String globalKey, String orderJsonVersion, Instant cleanupAfter) {
+        this.platformOrderId = platformOrderId;
+        this.globalEntityId = globalEntityId;
+        this.globalKey = globalKey;
+        this.orderJsonVersion = orderJsonVersion;
+        this.cleanupAfter = cleanupAfter;
+    }
+
+    public String getPlatformOrderId() {
+        return platformOrderId;
+    }
+
+    public String getGlobalEntityId() {
+        return globalEntityId;
+    }
+
+    public String getGlobalKey() {
+        return globalKey;
+    }
+
+    public String getOrderJsonVersion() {
+        return orderJsonVersion;
+    }
+
+    public Instant getCleanupAfter() {
+        return cleanupAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderView{" +
+                "platformOrderId='" + platformOrderId + '\'' +
+                ", globalEntityId='" + globalEntityId + '\'' +
+                ", globalKey='" + globalKey + '\'' +
+                ", orderJsonVersion='" + orderJsonVersion + '\'' +
+                ", cleanupAfter=" + cleanupAfter +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/*
+an UpdateItem, which only sets the given attributes, instead of the mapper's save, which sends all attributes of the
+entity (e.g. the whole vendor config) every time.
+
+attribute names are passed as placeholders (#a0, #a1, ...), so reserved words like "ttl" are no problem. the condition
+expression may use its own placeholders (":..." for values).
+ */
+public class PartialUpdate {
+
+    private final String tableName;
+    private final Map<String, AttributeValue> key;
+    private final StringJoiner setExpression = new StringJoiner(", ", "SET ", "");
+    private final Map<String, String> attributeNames = new HashMap<>();
+    private final Map<String, AttributeValue> attributeValues = new HashMap<>();
+    private String conditionExpression;
+
+    private PartialUpdate(String tableName, Map<String, AttributeValue> key) {
+        this.tableName = tableName;
+        this.key = key;
+    }
+
+    public static PartialUpdate of(String tableName, String hashKeyName, String hashKey) {
+        return new PartialUpdate(tableName, Map.of(hashKeyName, new AttributeValue(hashKey)));
+    }
+
+    public PartialUpdate set(String attributeName, AttributeValue value) {
+        int index = attributeNames.size();
+        attributeNames.put("#a" + index, attributeName);
+        attributeValues.put(":a" + index, value);
+        setExpression.add("#a" + index + " = :a" + index);
+        return this;
+    }
+
+    public PartialUpdate withCondition(String conditionExpression, Map<String, AttributeValue> conditionValues) {
+        this.conditionExpression = conditionExpression;
+        attributeValues.putAll(conditionValues);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return attributeNames.isEmpty();
+    }
+
+    public UpdateItemRequest toUpdateItemRequest() {
+        return new UpdateItemRequest()
+                .withTableName(tableName)
+                .withKey(key)
+                .withUpdateExpression(setExpression.toString())
+                .withConditionExpression(conditionExpression)
+                .withExpressionAttributeNames(attributeNames)
+                .withExpressionAttributeValues(attributeValues);
+    }
+
+    // for TransactWriteItems
+    public Update toTransactUpdate() {
+        return new Update()
+                .withTableName(tableName)
+                .withKey(key)
+                .withUpdateExpression(setExpression.toString())
+                .withConditionExpression(conditionExpression)
+                .withExpressionAttributeNames(attributeNames)
+                .withExpressionAttributeValues(attributeValues);
+    }
+}
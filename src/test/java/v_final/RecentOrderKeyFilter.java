@@ -0,0 +1,121 @@
+package v_final;
+
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.function.LongSupplier;
+
+/*
+sliding window bloom filter of the order hash keys (pOIDgEID, pOIDgK) this node has written recently. used to flag
+probable duplicates (e.g. redelivered queue messages), which are then confirmed with a GetItem (0.5 RCU) instead of
+letting the insert TX (~8 WRU, see v4.OrderTest) fail.
+
+- false positives are possible (-> a needless GetItem), false negatives are not (within the window).
+- the window is split into `GENERATIONS` bloom filters. the oldest one is cleared, when a new generation starts, so a
+  key is remembered for at least `window * (GENERATIONS - 1) / GENERATIONS` and at most `window`. keep the window
+  within the TTL horizon (cleanupAfter), an order may be inserted again after it has been cleaned up.
+- keys written by other nodes are not known, those duplicates still fail in the TX.
+
+the table name is part of the key, as pOIDgEID and pOIDgK values might be equal.
+ */
+public class RecentOrderKeyFilter {
+
+    private static final int GENERATIONS = 4;
+
+    private final int bitsPerGeneration;
+    private final int numberOfHashes;
+    private final long generationNanos;
+    private final LongSupplier nanoClock;
+
+    // ring of generations, guarded by this
+    private final BitSet[] generations = new BitSet[GENERATIONS];
+    private long currentGeneration;
+
+    // expectedKeys: keys added within the window (2 per order), falsePositiveRate: e.g. 0.01
+    public RecentOrderKeyFilter(int expectedKeys, double falsePositiveRate, Duration window) {
+        this(expectedKeys, falsePositiveRate, window, System::nanoTime);
+    }
+
+    RecentOrderKeyFilter(int expectedKeys, double falsePositiveRate, Duration window, LongSupplier nanoClock) {
+
+        // a lookup checks all generations, so each one gets a share of the false positive rate. each one is sized for
+        // all expected keys, so a burst within one generation does not overfill it
+        int keysPerGeneration = Math.max(1, expectedKeys);
+        double generationRate = falsePositiveRate / GENERATIONS;
+        double bits = -keysPerGeneration * Math.log(generationRate) / (Math.log(2) * Math.log(2));
+
+        this.bitsPerGeneration = (int) Math.min(Integer.MAX_VALUE - 8, Math.ceil(bits));
+        this.numberOfHashes = Math.max(1, (int) Math.round(bits / keysPerGeneration * Math.log(2)));
+        this.generationNanos = Math.max(1, window.toNanos() / GENERATIONS);
+        this.nanoClock = nanoClock;
+        for (int i = 0; i < GENERATIONS; i++) {
+            generations[i] = new BitSet(bitsPerGeneration);
+        }
+        this.currentGeneration = nanoClock.getAsLong() / generationNanos;
+    }
+
+    public void add(String tableName, String hashKey) {
+        long hash = hashOf(tableName, hashKey);
+        synchronized (this) {
+            BitSet bitSet = generations[(int) Math.floorMod(advance(), GENERATIONS)];
+            for (int i = 0; i < numberOfHashes; i++) {
+                bitSet.set(indexOf(hash, i));
+            }
+        }
+    }
+
+    // false: not written by this node within the window. true: probably written
+    public boolean mightContain(String tableName, String hashKey) {
+        long hash = hashOf(tableName, hashKey);
+        synchronized (this) {
+            advance();
+            for (BitSet bitSet : generations) {
+                if (containsAll(bitSet, hash)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private boolean containsAll(BitSet bitSet, long hash) {
+        for (int i = 0; i < numberOfHashes; i++) {
+            if (!bitSet.get(indexOf(hash, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // clears the generations, which dropped out of the window. returns the current generation
+    private long advance() {
+        long generation = nanoClock.getAsLong() / generationNanos;
+        long expired = Math.min(generation - currentGeneration, GENERATIONS);
+        for (long i = 1; i <= expired; i++) {
+            generations[(int) Math.floorMod(currentGeneration + i, GENERATIONS)].clear();
+        }
+        if (generation > currentGeneration) {
+            currentGeneration = generation;
+        }
+        return currentGeneration;
+    }
+
+    // double hashing: h1 + i * h2
+    private int indexOf(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return Math.floorMod(h1 + i * h2, bitsPerGeneration);
+    }
+
+    // 64 bit FNV-1a, followed by the murmur3 finalizer (FNV alone mixes the low bits poorly)
+    private static long hashOf(String tableName, String hashKey) {
+        long hash = Fnv1a.hash(Fnv1a.OFFSET_BASIS, tableName);
+        hash = Fnv1a.mix(hash, 0xffff);
+        hash = Fnv1a.hash(hash, hashKey);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
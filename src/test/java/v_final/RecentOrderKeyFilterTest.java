@@ -0,0 +1,66 @@
+package v_final;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecentOrderKeyFilterTest {
+
+    @Test
+    public void testNoFalseNegativesWithinWindow() {
+
+        RecentOrderKeyFilter filter = new RecentOrderKeyFilter(10_000, 0.01, Duration.ofHours(1));
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(OrderByPoidGeid.TABLE_NAME, i + "<<>>PY_AR");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(OrderByPoidGeid.TABLE_NAME, i + "<<>>PY_AR"));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+
+        RecentOrderKeyFilter filter = new RecentOrderKeyFilter(10_000, 0.01, Duration.ofHours(1));
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(OrderByPoidGeid.TABLE_NAME, i + "<<>>PY_AR");
+        }
+
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain(OrderByPoidGeid.TABLE_NAME, i + "<<>>PY_AR")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testSlidingWindow() {
+
+        AtomicLong nanos = new AtomicLong();
+        RecentOrderKeyFilter filter = new RecentOrderKeyFilter(1000, 0.01, Duration.ofMinutes(4), nanos::get);
+
+        filter.add(OrderByPoidGeid.TABLE_NAME, "1<<>>PY_AR");
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        filter.add(OrderByPoidGeid.TABLE_NAME, "2<<>>PY_AR");
+
+        // remembered for at least 3/4 of the window
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertTrue(filter.mightContain(OrderByPoidGeid.TABLE_NAME, "1<<>>PY_AR"));
+        assertTrue(filter.mightContain(OrderByPoidGeid.TABLE_NAME, "2<<>>PY_AR"));
+
+        // and forgotten after the window
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertFalse(filter.mightContain(OrderByPoidGeid.TABLE_NAME, "1<<>>PY_AR"));
+        assertTrue(filter.mightContain(OrderByPoidGeid.TABLE_NAME, "2<<>>PY_AR"));
+
+        // all of them after a long pause
+        nanos.addAndGet(Duration.ofHours(1).toNanos());
+        assertFalse(filter.mightContain(OrderByPoidGeid.TABLE_NAME, "2<<>>PY_AR"));
+    }
+}
@@ -19,6 +19,10 @@ public class Vendor {
     private Instant timestamp;
     private String config;
     private boolean isDeleted;
+    // as read from table, null if not read or not written with a fingerprint yet
+    private String storedFingerprint;
+
+    private final CompositeKey.Cache hashKeyCache = new CompositeKey.Cache();
 
     public Vendor(String platformId, String globalKey, String rpsId, Instant timestamp, String config) {
         this.platformId = platformId;
@@ -31,6 +35,16 @@ public class Vendor {
     public Vendor() {
     }
 
+    public Vendor(Vendor other) {
+        this.platformId = other.platformId;
+        this.globalKey = other.globalKey;
+        this.rpsId = other.rpsId;
+        this.timestamp = other.timestamp;
+        this.config = other.config;
+        this.isDeleted = other.isDeleted;
+        this.storedFingerprint = other.storedFingerprint;
+    }
+
     @DynamoDBIgnore
     public String getPlatformId() {
         return platformId;
@@ -87,13 +101,12 @@ public class Vendor {
 
     @DynamoDBHashKey(attributeName = "pVIDgK")
     public String getHashKey() {
-        return platformId + "<<>>" + globalKey;
+        return hashKeyCache.get(platformId, globalKey);
     }
 
     public void setHashKey(String hashKey) {
-        String[] parts = hashKey.split("<<>>"); // delimiter must not be used within pOID or gEID
-        platformId = parts[0];
-        globalKey = parts[1];
+        platformId = CompositeKey.left(hashKey);
+        globalKey = CompositeKey.right(hashKey);
     }
 
     @DynamoDBAttribute(attributeName = "isDeleted")
@@ -105,6 +118,43 @@ public class Vendor {
         isDeleted = Boolean.parseBoolean(deleted);
     }
 
+    /*
+    fingerprint of the content (rVID, isDeleted and config), written with every save. so a vendor can be checked for
+    changes without comparing (or even reading) the config.
+
+    the getter always returns the fingerprint of the current content, the one read from table is kept separately.
+     */
+    @DynamoDBAttribute(attributeName = "fp")
+    public String getFingerprint() {
+        return fingerprintOf(rpsId, isDeleted, config);
+    }
+
+    public void setFingerprint(String fingerprint) {
+        storedFingerprint = fingerprint;
+    }
+
+    // the fingerprint read from table, or of the current content, if there is none
+    @DynamoDBIgnore
+    public String getStoredFingerprint() {
+        return storedFingerprint != null ? storedFingerprint : getFingerprint();
+    }
+
+    // 64 bit FNV-1a
+    public static String fingerprintOf(String rpsId, boolean isDeleted, String config) {
+        long hash = Fnv1a.OFFSET_BASIS;
+        hash = fnv1a(hash, rpsId);
+        hash = fnv1a(hash, isDeleted ? "1" : "0");
+        hash = fnv1a(hash, config);
+        return Long.toHexString(hash);
+    }
+
+    private static long fnv1a(long hash, String value) {
+        // outside of the char range, so null and "" differ
+        hash = value != null ? Fnv1a.hash(hash, value) : Fnv1a.mix(hash, 0x10000);
+        // separator, so ("ab", "c") and ("a", "bc") differ
+        return Fnv1a.mix(hash, 0xffff);
+    }
+
     @Override
     public String toString() {
         return "Vendor{" +
@@ -0,0 +1,110 @@
+package v_final;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+first inserts of vendors via TransactWriteItems (max 25 items per TX in DynamoDB local, see v6.ChunkedTransactionWriter),
+so N new vendors cost ~N/25 round trips instead of N. each put is guarded by `attribute_not_exists(pVIDgK)`, so a vendor
+existing in table (e.g. for another rVID, or inserted by a concurrent message) is never overwritten. a TX costs twice
+the WCUs of the plain puts.
+
+a TX is cancelled as a whole. the vendors whose condition failed are taken out and the rest of the chunk is sent again,
+right away. a TX cancelled for other reasons only (conflicting TX, throttling) is retried with exponential backoff and
+jitter. the vendors which are existing, or still not inserted after the last retry, are returned to be saved with the
+timestamp guard instead.
+ */
+public class VendorBatchWriter {
+
+    static final int MAX_ITEMS_PER_TRANSACTION = 25;
+
+    private final AmazonDynamoDB client;
+    private final DynamoDBMapperTableModel<Vendor> tableModel;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+
+    public VendorBatchWriter(AmazonDynamoDB client, DynamoDBMapper mapper) {
+        this(client, mapper, 8, 50);
+    }
+
+    public VendorBatchWriter(AmazonDynamoDB client, DynamoDBMapper mapper, int maxRetries, long baseBackoffMillis) {
+        this.client = client;
+        this.tableModel = mapper.getTableModel(Vendor.class);
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+    }
+
+    // inserts the given vendors, if not existing in table, and returns the ones not inserted
+    public Set<Vendor> insertAll(Collection<Vendor> vendors) {
+
+        Set<Vendor> notInserted = new HashSet<>();
+        List<Vendor> chunk = new ArrayList<>(MAX_ITEMS_PER_TRANSACTION);
+
+        for (Vendor vendor : vendors) {
+            chunk.add(vendor);
+            if (chunk.size() == MAX_ITEMS_PER_TRANSACTION) {
+                insertChunk(chunk, notInserted);
+                chunk = new ArrayList<>(MAX_ITEMS_PER_TRANSACTION);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, notInserted);
+        }
+
+        return notInserted;
+    }
+
+    private void insertChunk(List<Vendor> chunk, Set<Vendor> notInserted) {
+
+        List<Vendor> pending = chunk;
+        int attempt = 0;
+        while (!pending.isEmpty()) {
+
+            List<TransactWriteItem> puts = new ArrayList<>(pending.size());
+            for (Vendor vendor : pending) {
+                puts.add(new TransactWriteItem().withPut(new Put()
+                        .withTableName(Vendor.TABLE_NAME)
+                        .withItem(tableModel.convert(vendor))
+                        .withConditionExpression("attribute_not_exists(pVIDgK)")));
+            }
+
+            try {
+                client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(puts));
+                return;
+            } catch (TransactionCanceledException e) {
+
+                // one reason per item, in the order of the items ("None" for the ones which did not fail)
+                List<CancellationReason> reasons = e.getCancellationReasons();
+                List<Vendor> retry = new ArrayList<>(pending.size());
+                for (int i = 0; i < pending.size(); i++) {
+                    String code = reasons != null && i < reasons.size() ? reasons.get(i).getCode() : null;
+                    if ("ConditionalCheckFailed".equals(code)) {
+                        notInserted.add(pending.get(i));
+                    } else {
+                        retry.add(pending.get(i));
+                    }
+                }
+                // nothing taken out: cancelled for another reason only
+                boolean backOff = retry.size() == pending.size();
+                pending = retry;
+
+                if (backOff && (++attempt > maxRetries || !Backoff.sleep(baseBackoffMillis, attempt))) {
+                    notInserted.addAll(pending);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package v_final;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+the three partitions of a vendor relation update: which vendors of the queue message are new, which are existing in
+table and message, and which are only existing in table (so they have to be marked as deleted).
+
+both sides are indexed by hash key once, so the diff is linear in the number of vendors instead of comparing each
+vendor of the message with each vendor of the table (and concatenating the hash keys again for each comparison).
+ */
+public class VendorDiff {
+
+    private final Set<Vendor> toAdd;
+    private final Set<Vendor> toUpdate;
+    private final Set<Vendor> toDelete;
+    private final Map<String, Vendor> existingByHashKey;
+
+    private VendorDiff(Set<Vendor> toAdd, Set<Vendor> toUpdate, Set<Vendor> toDelete,
+                       Map<String, Vendor> existingByHashKey) {
+        this.toAdd = toAdd;
+        this.toUpdate = toUpdate;
+        this.toDelete = toDelete;
+        this.existingByHashKey = existingByHashKey;
+    }
+
+    public static VendorDiff of(Collection<Vendor> latestVendors, Collection<Vendor> existingVendors) {
+
+        Map<String, Vendor> existingByHashKey = new HashMap<>(capacityFor(existingVendors.size()));
+        for (Vendor existingVendor : existingVendors) {
+            existingByHashKey.put(existingVendor.getHashKey(), existingVendor);
+        }
+
+        Set<Vendor> toAdd = new HashSet<>();
+        Set<Vendor> toUpdate = new HashSet<>();
+        Set<String> matchedHashKeys = new HashSet<>(capacityFor(latestVendors.size()));
+
+        for (Vendor latestVendor : latestVendors) {
+            String hashKey = latestVendor.getHashKey();
+            if (existingByHashKey.containsKey(hashKey)) {
+                // existing in both
+                toUpdate.add(latestVendor);
+                matchedHashKeys.add(hashKey);
+            } else {
+                // existing in set, but not in table
+                toAdd.add(latestVendor);
+            }
+        }
+
+        // existing in table, but not in set
+        Set<Vendor> toDelete = new HashSet<>();
+        existingByHashKey.forEach((hashKey, existingVendor) -> {
+            if (!matchedHashKeys.contains(hashKey)) {
+                toDelete.add(existingVendor);
+            }
+        });
+
+        return new VendorDiff(toAdd, toUpdate, toDelete, existingByHashKey);
+    }
+
+    private static int capacityFor(int size) {
+        return Math.max(16, (int) (size / 0.75f) + 1);
+    }
+
+    // vendors of the queue message, which are not existing in table for the rVID
+    public Set<Vendor> getToAdd() {
+        return toAdd;
+    }
+
+    // vendors of the queue message, which are existing in table for the rVID
+    public Set<Vendor> getToUpdate() {
+        return toUpdate;
+    }
+
+    // vendors of the table, which are not existing in the queue message anymore
+    public Set<Vendor> getToDelete() {
+        return toDelete;
+    }
+
+    // the existing vendor (as read from table) for the given hash key, or null
+    public Vendor getExisting(String hashKey) {
+        return existingByHashKey.get(hashKey);
+    }
+}
@@ -0,0 +1,95 @@
+package v_final;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+compares the former nested stream diff of the listener with the hash indexed `VendorDiff`.
+
+the message and the table share half of their platform vendors, so all three partitions are filled.
+
+the hash key of a vendor is cached (see CompositeKey.Cache), so the nested streams only compare the cached keys now.
+the former listener built the key string on every comparison, which is not measured here anymore: this only compares
+the O(n * m) loops with the hash lookups. no results recorded yet, run it (see `main`) to see where the two cross.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VendorDiffBenchmark {
+
+    @Param({"1", "4", "16", "64", "256", "1024"})
+    private int numberOfVendors;
+
+    private Set<Vendor> latestVendors;
+    private List<Vendor> existingVendors;
+
+    @Setup
+    public void setup() {
+        Instant now = Instant.now();
+        latestVendors = new HashSet<>();
+        existingVendors = new ArrayList<>();
+        for (int i = 0; i < numberOfVendors; i++) {
+            // shifted by half, so there are vendors to add, to update and to delete
+            latestVendors.add(new Vendor("pv" + i, "LH", "1234", now, "config"));
+            existingVendors.add(new Vendor("pv" + (i + numberOfVendors / 2), "LH", "1234", now, "config"));
+        }
+    }
+
+    @Benchmark
+    public void nestedStreams(Blackhole blackhole) {
+
+        Set<Vendor> existingVendorsToDelete = existingVendors.stream()
+                .filter(existingVendor -> latestVendors.stream()
+                        .noneMatch(latestVendor -> latestVendor.getHashKey().equals(existingVendor.getHashKey())))
+                .collect(Collectors.toSet());
+
+        Set<Vendor> queueMessageVendorsToAdd = latestVendors.stream()
+                .filter(latestVendor -> existingVendors.stream()
+                        .noneMatch(existingVendor -> latestVendor.getHashKey().equals(existingVendor.getHashKey())))
+                .collect(Collectors.toSet());
+
+        Set<Vendor> queueMessageVendorsToUpdate = latestVendors.stream()
+                .filter(latestVendor -> existingVendors.stream()
+                        .anyMatch(existingVendor -> latestVendor.getHashKey().equals(existingVendor.getHashKey())))
+                .collect(Collectors.toSet());
+
+        blackhole.consume(existingVendorsToDelete);
+        blackhole.consume(queueMessageVendorsToAdd);
+        blackhole.consume(queueMessageVendorsToUpdate);
+    }
+
+    @Benchmark
+    public VendorDiff hashIndexed() {
+        return VendorDiff.of(latestVendors, existingVendors);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(VendorDiffBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,59 @@
+package v_final;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VendorDiffTest {
+
+    @Test
+    public void testPartitions() {
+
+        Instant now = Instant.now();
+        Vendor existingOnly = new Vendor("a", "LH", "1234", now.minusSeconds(10), "a config");
+        Vendor existingBoth = new Vendor("b", "LH", "1234", now.minusSeconds(10), "b config");
+        Vendor latestBoth = new Vendor("b", "LH", "1234", now, "new b config");
+        Vendor latestOnly = new Vendor("c", "LH", "1234", now, "c config");
+
+        VendorDiff diff = VendorDiff.of(Set.of(latestBoth, latestOnly), List.of(existingOnly, existingBoth));
+
+        assertEquals(Set.of(latestOnly), diff.getToAdd());
+        assertEquals(Set.of(latestBoth), diff.getToUpdate());
+        assertEquals(Set.of(existingOnly), diff.getToDelete());
+        assertSame(existingBoth, diff.getExisting(latestBoth.getHashKey()));
+        assertNull(diff.getExisting(latestOnly.getHashKey()));
+    }
+
+    @Test
+    public void testSameVendorForOtherGlobalKeyIsNotMatched() {
+
+        Instant now = Instant.now();
+        Vendor existing = new Vendor("a", "LH", "1234", now, "config");
+        Vendor latest = new Vendor("a", "PY", "1234", now, "config");
+
+        VendorDiff diff = VendorDiff.of(Set.of(latest), List.of(existing));
+
+        assertEquals(Set.of(latest), diff.getToAdd());
+        assertTrue(diff.getToUpdate().isEmpty());
+        assertEquals(Set.of(existing), diff.getToDelete());
+    }
+
+    @Test
+    public void testEmptyMessageDeletesAll() {
+
+        Vendor existing = new Vendor("a", "LH", "1234", Instant.now(), "config");
+
+        VendorDiff diff = VendorDiff.of(Set.of(), List.of(existing));
+
+        assertTrue(diff.getToAdd().isEmpty());
+        assertTrue(diff.getToUpdate().isEmpty());
+        assertEquals(Set.of(existing), diff.getToDelete());
+    }
+}
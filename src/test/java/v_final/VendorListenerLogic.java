@@ -13,61 +13,165 @@ import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 public class VendorListenerLogic {
 
     private final AmazonDynamoDB client;
     private final DynamoDBMapperConfig mapperConfigConsistent;
     private final DynamoDBMapper mapper;
+    private final VendorListenerOptions options;
+    private final VendorBatchWriter batchWriter;
+    private final ConditionalWriteExecutor conditionalWriteExecutor;
+
+    private final OperationMetrics.Operation updateOperation;
+    private final OperationMetrics.Operation gsiQueryOperation;
+    private final OperationMetrics.Operation saveOperation;
+    private final OperationMetrics.Operation conditionalSavesOperation;
+    private final OperationMetrics.Operation updateItemOperation;
+    private final OperationMetrics.Operation transactInsertOperation;
 
     public VendorListenerLogic(AmazonDynamoDB client) {
+        this(client, new VendorListenerOptions());
+    }
+
+    public VendorListenerLogic(AmazonDynamoDB client, VendorListenerOptions options) {
         this.client = client;
+        this.options = options;
         mapperConfigConsistent = DynamoDBMapperConfig.builder()
                 .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
                 .build();
         mapper = new DynamoDBMapper(client);
+        batchWriter = new VendorBatchWriter(client, mapper);
+        conditionalWriteExecutor = options.getConditionalWriteExecutor() != null
+                ? options.getConditionalWriteExecutor()
+                : ConditionalWriteExecutor.sameThread(mapper);
+
+        OperationMetrics metrics = options.getMetrics();
+        updateOperation = metrics.operation("vendor.update");
+        gsiQueryOperation = metrics.operation("vendor.gsiQuery");
+        saveOperation = metrics.operation("vendor.save");
+        conditionalSavesOperation = metrics.operation("vendor.conditionalSaves");
+        updateItemOperation = metrics.operation("vendor.updateItem");
+        transactInsertOperation = metrics.operation("vendor.transactInsert");
     }
 
     // these vendors are actually not of type `Vendor`, but the type from the queue message!
-    public void update(Set<Vendor> latestVendorsForRvid, String rVID, Instant eventTimeStamp) {
+    public VendorWriteResult update(Set<Vendor> latestVendorsForRvid, String rVID, Instant eventTimeStamp) {
+
+        long start = updateOperation.start();
+        try {
+            VendorWriteResult result = reconcile(latestVendorsForRvid, rVID, eventTimeStamp);
+            updateOperation.end(start, latestVendorsForRvid.size());
+            return result;
+        } catch (RuntimeException e) {
+            updateOperation.fail(start);
+            throw e;
+        }
+    }
+
+    private VendorWriteResult reconcile(Set<Vendor> latestVendorsForRvid, String rVID, Instant eventTimeStamp) {
+
+        List<Vendor> existingVendors = loadExistingVendors(rVID);
+
+        VendorDiff diff = VendorDiff.of(latestVendorsForRvid, existingVendors);
+
+        VendorWriteResult result = new VendorWriteResult();
+
+        try {
+            Set<Vendor> vendorsToUpdate = withoutUnchanged(diff.getToUpdate(), diff, eventTimeStamp, rVID, false, result);
+            Set<Vendor> vendorsToDelete = withoutUnchanged(diff.getToDelete(), diff, eventTimeStamp, rVID, true, result);
+
+            if (options.getWriteMode() == VendorListenerOptions.WriteMode.BATCHED) {
+                handleUpdates(vendorsToUpdate, eventTimeStamp, rVID, result);
+                handleBatchedAdds(diff.getToAdd(), eventTimeStamp, rVID, result);
+                handleAddOrDelete(vendorsToDelete, eventTimeStamp, rVID, "true", result);
+            } else if (options.isPartialUpdates()) {
+                handlePartialUpdates(vendorsToUpdate, diff, eventTimeStamp, rVID, false, result);
+                handleAddOrDelete(diff.getToAdd(), eventTimeStamp, rVID, "false", result);
+                handlePartialUpdates(vendorsToDelete, diff, eventTimeStamp, rVID, true, result);
+            } else {
+                handleUpdates(vendorsToUpdate, eventTimeStamp, rVID, result);
+
+                // these vendors to add are actually not of type `Vendor`, but the type from the queue message!
+                handleAddOrDelete(diff.getToAdd(), eventTimeStamp, rVID, "false", result);
+                handleAddOrDelete(vendorsToDelete, eventTimeStamp, rVID, "true", result);
+            }
+        } catch (RuntimeException e) {
+            if (options.getExistingVendorCache() != null) {
+                options.getExistingVendorCache().invalidate(rVID);
+            }
+            throw e;
+        }
+
+        writeThrough(rVID, diff, result);
+
+        return result;
+    }
+
+    private List<Vendor> loadExistingVendors(String rVID) {
+
+        ExistingVendorCache cache = options.getExistingVendorCache();
+        if (cache != null) {
+            List<Vendor> cachedVendors = cache.get(rVID);
+            if (cachedVendors != null) {
+                return cachedVendors;
+            }
+        }
 
         DynamoDBQueryExpression<Vendor> gsiQuery = new DynamoDBQueryExpression<Vendor>()
                 .withIndexName("rVIDGsi")
                 .withConsistentRead(false)
                 .withKeyConditionExpression("rVID = :rVID")
                 .withExpressionAttributeValues(Map.of(":rVID", new AttributeValue(rVID)));
-        PaginatedQueryList<Vendor> existingVendors = mapper.query(Vendor.class, gsiQuery, mapperConfigConsistent);
-        existingVendors.loadAllResults();
-
-        // all which are existing in table, but not in set
-        Set<Vendor> existingVendorsToDelete = existingVendors.stream()
-                .filter(existingVendor -> latestVendorsForRvid.stream()
-                        .noneMatch(latestVendor -> latestVendor.getHashKey().equals(existingVendor.getHashKey())))
-                .collect(Collectors.toSet());
-
-        // all which are existing in set, but not in table
-        Set<Vendor> queueMessageVendorsToAdd = latestVendorsForRvid.stream()
-                .filter(latestVendor -> existingVendors.stream()
-                        .noneMatch(existingVendor -> latestVendor.getHashKey().equals(existingVendor.getHashKey())))
-                .collect(Collectors.toSet());
-
-        // all which are existing in both
-        Set<Vendor> queueMessageVendorsToUpdate = latestVendorsForRvid.stream()
-                .filter(latestVendor -> existingVendors.stream()
-                        .anyMatch(existingVendor -> latestVendor.getHashKey().equals(existingVendor.getHashKey())))
-                .collect(Collectors.toSet());
-
-        handleUpdates(queueMessageVendorsToUpdate, eventTimeStamp, rVID);
-
-        // these vendors to add are actually not of type `Vendor`, but the type from the queue message!
-        handleAddOrDelete(queueMessageVendorsToAdd, eventTimeStamp, rVID, "false");
-        handleAddOrDelete(existingVendorsToDelete, eventTimeStamp, rVID, "true");
+        long start = gsiQueryOperation.start();
+        try {
+            PaginatedQueryList<Vendor> existingVendors = mapper.query(Vendor.class, gsiQuery, mapperConfigConsistent);
+            existingVendors.loadAllResults();
+            gsiQueryOperation.end(start, existingVendors.size());
+            return existingVendors;
+        } catch (RuntimeException e) {
+            gsiQueryOperation.fail(start);
+            throw e;
+        }
+    }
+
+    /*
+    if all changes have been written, we know the vendors of the rVID in table now: all of the diff. otherwise (outdated,
+    so changed by someone else) we don't know and read them again next time.
+     */
+    private void writeThrough(String rVID, VendorDiff diff, VendorWriteResult result) {
+
+        ExistingVendorCache cache = options.getExistingVendorCache();
+        if (cache == null) {
+            return;
+        }
+
+        List<Vendor> vendorsOfRvid = new ArrayList<>(
+                diff.getToUpdate().size() + diff.getToAdd().size() + diff.getToDelete().size());
+        for (Set<Vendor> partition : List.of(diff.getToUpdate(), diff.getToAdd(), diff.getToDelete())) {
+            for (Vendor vendor : partition) {
+                WriteOutcome outcome = result.getOutcome(vendor.getHashKey());
+                if (outcome == WriteOutcome.WRITTEN) {
+                    // the fingerprint written is the one in table now
+                    vendor.setFingerprint(vendor.getFingerprint());
+                    vendorsOfRvid.add(vendor);
+                } else {
+                    cache.invalidate(rVID);
+                    return;
+                }
+            }
+        }
+        cache.put(rVID, vendorsOfRvid);
     }
 
-    private void handleUpdates(Set<Vendor> queueMessageVendorsToUpdate, Instant eventTimeStamp, String rVID) {
+    private void handleUpdates(Set<Vendor> queueMessageVendorsToUpdate, Instant eventTimeStamp, String rVID,
+                               VendorWriteResult result) {
 
         String ets = String.valueOf(eventTimeStamp.toEpochMilli());
 
@@ -77,6 +181,7 @@ public class VendorListenerLogic {
 
         for (Vendor vendor : queueMessageVendorsToUpdate) {
 
+            long start = saveOperation.start();
             try {
                 vendor.setRpsId(rVID);
                 vendor.setDeleted("false");
@@ -84,13 +189,20 @@ public class VendorListenerLogic {
 
                 // if not existing, insert. if existing, update.
                 mapper.save(vendor, saveExpression);
+                saveOperation.end(start, 1);
+                result.put(vendor.getHashKey(), WriteOutcome.WRITTEN);
 
                 System.out.println(Thread.currentThread().getName() + " : successful update");
 
             } catch (ConditionalCheckFailedException e) {
-                // queue message outdated, skip
+                // queue message outdated, skip (not an error, counted as conditional check failure)
+                saveOperation.end(start, 0);
+                result.put(vendor.getHashKey(), WriteOutcome.OUTDATED);
 //                System.out.println(Thread.currentThread().getName()
 //                        + " : update failed, latest vendor older than existing one");
+            } catch (RuntimeException e) {
+                saveOperation.fail(start);
+                throw e;
             }
         }
     }
@@ -99,8 +211,12 @@ public class VendorListenerLogic {
     the vendors are found by rVID, but they are updated by hashkey (pVID, gK). so if we get a exception, due to outdated,
     we just skip. otherwise the platform vendor is added (if not existing) or updated (if existing) according to the
     given info, which must be correct, as it is newer.
+
+    the saves are independent per hash key, so they are handed to the conditional write executor, which may run them
+    concurrently (on the listener thread, one after the other, by default).
      */
-    private void handleAddOrDelete(Set<Vendor> vendorsToModify, Instant eventTimeStamp, String rVID, String deleted) {
+    private void handleAddOrDelete(Set<Vendor> vendorsToModify, Instant eventTimeStamp, String rVID, String deleted,
+                                   VendorWriteResult result) {
 
         String ets = String.valueOf(eventTimeStamp.toEpochMilli());
 
@@ -115,23 +231,209 @@ public class VendorListenerLogic {
                 ))
                 .withConditionalOperator(ConditionalOperator.OR);
 
-        for (Vendor vendor : vendorsToModify) {
+        List<CompletableFuture<Void>> saves = new ArrayList<>(vendorsToModify.size());
+
+        // all saves of the call, as the executor may run them concurrently
+        long start = conditionalSavesOperation.start();
+        try {
+            for (Vendor vendor : vendorsToModify) {
 
-            try {
                 vendor.setRpsId(rVID);
                 vendor.setDeleted(deleted);
                 vendor.setTimestamp(eventTimeStamp);
 
-                // if not existing, insert. if existing, update.
-                mapper.save(vendor, saveExpression);
+                String hashKey = vendor.getHashKey();
+                saves.add(conditionalWriteExecutor.save(vendor, saveExpression).thenAccept(outcome -> {
+                    result.put(hashKey, outcome);
+                    if (outcome == WriteOutcome.WRITTEN) {
+                        System.out.println(Thread.currentThread().getName() + " : successful add/delete (or implicit update)");
+                    }
+                    // else queue message outdated, skip
+                }));
+            }
+
+            // rethrows any other exception of the saves (wrapped in a CompletionException)
+            CompletableFuture.allOf(saves.toArray(new CompletableFuture[0])).join();
+            conditionalSavesOperation.end(start, saves.size());
+        } catch (RuntimeException e) {
+            conditionalSavesOperation.fail(start);
+            throw e;
+        }
+    }
+
+    /*
+    the vendors are existing in table (we know their attributes from the GSI query), so only the changed attributes are
+    sent. the read may be behind the table, so the update is guarded by the ts read: only if the vendor in table is
+    still the one read, the unchanged attributes are really unchanged. otherwise it is written completely (with the
+    usual timestamp guard).
+     */
+    private void handlePartialUpdates(Set<Vendor> vendors, VendorDiff diff, Instant eventTimeStamp, String rVID,
+                                      boolean deleted, VendorWriteResult result) {
+
+        Set<Vendor> vendorsToWrite = new HashSet<>();
 
-                System.out.println(Thread.currentThread().getName() + " : successful add/delete (or implicit update)");
+        for (Vendor vendor : vendors) {
 
+            Vendor existingVendor = diff.getExisting(vendor.getHashKey());
+            // before it is modified, as the vendors to delete are the existing ones themselves
+            Instant readTimestamp = existingVendor.getTimestamp();
+            String existingRpsId = existingVendor.getRpsId();
+            String existingDeleted = existingVendor.isDeleted();
+            String existingConfig = existingVendor.getConfig();
+            String existingFingerprint = existingVendor.getStoredFingerprint();
+
+            if (readTimestamp == null) {
+                vendorsToWrite.add(vendor);
+                continue;
+            }
+            if (!readTimestamp.isBefore(eventTimeStamp)) {
+                // the table is at least as recent as the read
+                result.put(vendor.getHashKey(), WriteOutcome.OUTDATED);
+                continue;
+            }
+
+            vendor.setRpsId(rVID);
+            vendor.setDeleted(String.valueOf(deleted));
+            vendor.setTimestamp(eventTimeStamp);
+
+            PartialUpdate update = PartialUpdate.of(Vendor.TABLE_NAME, "pVIDgK", vendor.getHashKey())
+                    .set("ts", new AttributeValue().withN(String.valueOf(vendor.getTs())))
+                    .withCondition("ts = :readTs", Map.of(
+                            ":readTs", new AttributeValue().withN(String.valueOf(readTimestamp.toEpochMilli()))));
+            if (!rVID.equals(existingRpsId)) {
+                update.set("rVID", new AttributeValue(rVID));
+            }
+            if (!vendor.isDeleted().equals(existingDeleted)) {
+                update.set("isDeleted", new AttributeValue(vendor.isDeleted()));
+            }
+            if (vendor.getConfig() != null && !vendor.getConfig().equals(existingConfig)) {
+                update.set("config", new AttributeValue(vendor.getConfig()));
+            }
+            if (!vendor.getFingerprint().equals(existingFingerprint)) {
+                update.set("fp", new AttributeValue(vendor.getFingerprint()));
+            }
+
+            long start = updateItemOperation.start();
+            try {
+                client.updateItem(update.toUpdateItemRequest());
+                updateItemOperation.end(start, 1);
+                result.put(vendor.getHashKey(), WriteOutcome.WRITTEN);
             } catch (ConditionalCheckFailedException e) {
-                // queue message outdated, skip
-//                System.out.println(Thread.currentThread().getName()
-//                        + " : add/delete failed, latest vendor older than existing one");
+                // changed since the read (or not existing anymore)
+                updateItemOperation.end(start, 0);
+                vendorsToWrite.add(vendor);
+            } catch (RuntimeException e) {
+                updateItemOperation.fail(start);
+                throw e;
+            }
+        }
+
+        if (deleted) {
+            handleAddOrDelete(vendorsToWrite, eventTimeStamp, rVID, "true", result);
+        } else {
+            handleUpdates(vendorsToWrite, eventTimeStamp, rVID, result);
+        }
+    }
+
+    /*
+    with change detection, the vendors existing for the rVID, whose content would not change, only get their ts moved
+    forward. the read (GSI or cache) may be behind the table, so the touch is guarded by the fingerprint and ts read.
+    returns the vendors to write completely: the changed ones and the ones changed in table since the read.
+     */
+    private Set<Vendor> withoutUnchanged(Set<Vendor> vendors, VendorDiff diff, Instant eventTimeStamp, String rVID,
+                                         boolean deleted, VendorWriteResult result) {
+
+        if (options.getChangeDetection() == VendorListenerOptions.ChangeDetection.OFF) {
+            return vendors;
+        }
+
+        Set<Vendor> vendorsToWrite = new HashSet<>();
+
+        for (Vendor vendor : vendors) {
+
+            // as read, the vendors to delete are the existing ones themselves
+            Vendor existingVendor = diff.getExisting(vendor.getHashKey());
+            Instant readTimestamp = existingVendor.getTimestamp();
+            String readFingerprint = existingVendor.getStoredFingerprint();
+
+            String fingerprint = Vendor.fingerprintOf(rVID, deleted, vendor.getConfig());
+            if (readTimestamp == null || !fingerprint.equals(readFingerprint)) {
+                vendorsToWrite.add(vendor);
+                continue;
+            }
+
+            if (!readTimestamp.isBefore(eventTimeStamp)) {
+                // the table is at least as recent as the read
+                result.put(vendor.getHashKey(), WriteOutcome.OUTDATED);
+            } else if (touchTimestamp(vendor.getHashKey(), readFingerprint, readTimestamp, eventTimeStamp)) {
+                vendor.setRpsId(rVID);
+                vendor.setDeleted(String.valueOf(deleted));
+                vendor.setTimestamp(eventTimeStamp);
+                result.put(vendor.getHashKey(), WriteOutcome.WRITTEN);
+            } else {
+                // changed since the read, so written completely (with the usual timestamp guard)
+                vendorsToWrite.add(vendor);
+            }
+        }
+
+        return vendorsToWrite;
+    }
+
+    // only moves the ts forward, if the vendor in table is still the one read. false, if not
+    private boolean touchTimestamp(String hashKey, String readFingerprint, Instant readTimestamp,
+                                   Instant eventTimeStamp) {
+        long start = updateItemOperation.start();
+        try {
+            client.updateItem(PartialUpdate.of(Vendor.TABLE_NAME, "pVIDgK", hashKey)
+                    .set("ts", new AttributeValue().withN(String.valueOf(eventTimeStamp.toEpochMilli())))
+                    .withCondition("fp = :readFp AND ts = :readTs", Map.of(
+                            ":readFp", new AttributeValue(readFingerprint),
+                            ":readTs", new AttributeValue().withN(String.valueOf(readTimestamp.toEpochMilli()))))
+                    .toUpdateItemRequest());
+            updateItemOperation.end(start, 1);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            updateItemOperation.end(start, 0);
+            return false;
+        } catch (RuntimeException e) {
+            updateItemOperation.fail(start);
+            throw e;
+        }
+    }
+
+    /*
+    the vendors to add are not existing for the rVID, but may be existing for another one (or the GSI is behind). so
+    they are inserted in TXs of 25, each put only if not existing in table. the ones existing are saved conditionally,
+    as in CONDITIONAL mode.
+     */
+    private void handleBatchedAdds(Set<Vendor> vendorsToAdd, Instant eventTimeStamp, String rVID,
+                                   VendorWriteResult result) {
+
+        if (vendorsToAdd.isEmpty()) {
+            return;
+        }
+
+        for (Vendor vendor : vendorsToAdd) {
+            vendor.setRpsId(rVID);
+            vendor.setDeleted("false");
+            vendor.setTimestamp(eventTimeStamp);
+        }
+
+        Set<Vendor> notInserted;
+        long start = transactInsertOperation.start();
+        try {
+            notInserted = batchWriter.insertAll(vendorsToAdd);
+            transactInsertOperation.end(start, vendorsToAdd.size() - notInserted.size());
+        } catch (RuntimeException e) {
+            transactInsertOperation.fail(start);
+            throw e;
+        }
+
+        for (Vendor vendor : vendorsToAdd) {
+            if (!notInserted.contains(vendor)) {
+                result.put(vendor.getHashKey(), WriteOutcome.WRITTEN);
             }
         }
+        handleAddOrDelete(notInserted, eventTimeStamp, rVID, "false", result);
     }
 }
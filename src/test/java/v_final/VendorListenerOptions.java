@@ -0,0 +1,102 @@
+package v_final;
+
+// how the `VendorListenerLogic` writes the vendors. the defaults are the conditional, one-by-one saves.
+public class VendorListenerOptions {
+
+    public enum WriteMode {
+
+        // each vendor is saved on its own, guarded by the timestamp condition
+        CONDITIONAL,
+
+        /*
+        new vendors for the rVID are inserted via TransactWriteItems (25 per TX), each put guarded by
+        `attribute_not_exists(pVIDgK)`, see VendorBatchWriter. the ones existing in table (for another rVID, or
+        inserted by another message meanwhile) are saved with the timestamp guard instead, as all updates and deletes,
+        as in CONDITIONAL mode. so only the first insert of a platform vendor is batched, e.g. when a rps vendor with
+        many platform vendors is created, and a newer vendor is never overwritten.
+         */
+        BATCHED
+    }
+
+    // what to do with vendors existing in table for the rVID, whose content (rVID, isDeleted, config) is unchanged
+    public enum ChangeDetection {
+
+        // written anyway
+        OFF,
+
+        /*
+        only the ts is updated (UpdateItem), the rest of the item is not sent. guarded by the fingerprint and ts read,
+        so a vendor changed since the (eventually consistent) read is written completely instead. never skipped, as an
+        older message could change the vendor afterwards, if the ts was not moved forward.
+         */
+        TOUCH_TIMESTAMP
+    }
+
+    private WriteMode writeMode = WriteMode.CONDITIONAL;
+    private ChangeDetection changeDetection = ChangeDetection.OFF;
+    /*
+    CONDITIONAL mode only: vendors existing for the rVID are written via UpdateItem with the changed attributes only
+    (ts and, if changed, isDeleted, config, rVID). new vendors are always saved completely.
+     */
+    private boolean partialUpdates;
+    // null: saves on the listener thread, one after the other
+    private ConditionalWriteExecutor conditionalWriteExecutor;
+    // null: the vendors of the rVID are always read via the GSI
+    private ExistingVendorCache existingVendorCache;
+    // the "vendor.*" operations, see VendorListenerLogic
+    private OperationMetrics metrics = OperationMetrics.NONE;
+
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    public VendorListenerOptions withWriteMode(WriteMode writeMode) {
+        this.writeMode = writeMode;
+        return this;
+    }
+
+    public ConditionalWriteExecutor getConditionalWriteExecutor() {
+        return conditionalWriteExecutor;
+    }
+
+    public VendorListenerOptions withConditionalWriteExecutor(ConditionalWriteExecutor conditionalWriteExecutor) {
+        this.conditionalWriteExecutor = conditionalWriteExecutor;
+        return this;
+    }
+
+    public ExistingVendorCache getExistingVendorCache() {
+        return existingVendorCache;
+    }
+
+    public VendorListenerOptions withExistingVendorCache(ExistingVendorCache existingVendorCache) {
+        this.existingVendorCache = existingVendorCache;
+        return this;
+    }
+
+    public ChangeDetection getChangeDetection() {
+        return changeDetection;
+    }
+
+    public VendorListenerOptions withChangeDetection(ChangeDetection changeDetection) {
+        this.changeDetection = changeDetection;
+        return this;
+    }
+
+    public boolean isPartialUpdates() {
+        return partialUpdates;
+    }
+
+    public VendorListenerOptions withPartialUpdates(boolean partialUpdates) {
+        this.partialUpdates = partialUpdates;
+        return this;
+    }
+
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public VendorListenerOptions withMetrics(OperationMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+}
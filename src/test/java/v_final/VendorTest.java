@@ -2,106 +2,58 @@ package v_final;
 
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsyncClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
-import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedScanList;
-import com.amazonaws.services.dynamodbv2.local.main.ServerRunner;
-import com.amazonaws.services.dynamodbv2.local.server.DynamoDBProxyServer;
-import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.BillingMode;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
-import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
-import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
-import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
-import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
-import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
-import com.amazonaws.services.dynamodbv2.model.KeyType;
-import com.amazonaws.services.dynamodbv2.model.Projection;
-import com.amazonaws.services.dynamodbv2.model.ProjectionType;
-import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
-import com.amazonaws.waiters.WaiterParameters;
-import org.junit.jupiter.api.AfterAll;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import testsupport.DynamoDBLocalExtension;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class VendorTest {
 
-    private static DynamoDBProxyServer server;
+    // the GSI rVIDGsi projects all attributes
+    @RegisterExtension
+    static final DynamoDBLocalExtension dynamoDB = new DynamoDBLocalExtension(Vendor.class);
+
     private static AmazonDynamoDB client;
     private static DynamoDBMapper mapper;
 
     @BeforeAll
-    public static void beforeAll() throws Exception {
-
-        System.setProperty("sqlite4java.library.path", "native-libs");
-        server = ServerRunner.createServerFromCommandLineArgs(new String[]{"-inMemory", "-port", "4566"});
-        server.start();
-
-        client = AmazonDynamoDBClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
-                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:4566", "eu-west-1"))
-                .build();
-
-        CreateTableRequest createTableRequest = new CreateTableRequest()
-                .withTableName(Vendor.TABLE_NAME)
-                .withAttributeDefinitions(
-                        new AttributeDefinition("pVIDgK", ScalarAttributeType.S),
-                        new AttributeDefinition("rVID", ScalarAttributeType.S)
-                )
-                .withKeySchema(new KeySchemaElement("pVIDgK", KeyType.HASH))
-                .withGlobalSecondaryIndexes(new GlobalSecondaryIndex()
-                        .withIndexName("rVIDGsi")
-                        .withKeySchema(new KeySchemaElement("rVID", KeyType.HASH))
-                        .withProjection(new Projection().withProjectionType(ProjectionType.ALL)))
-                .withBillingMode(BillingMode.PAY_PER_REQUEST);
-
-        CreateTableResult createTableResult = client.createTable(createTableRequest);
-        System.out.println(createTableResult.getTableDescription());
-
-        client.waiters().tableExists().run(new WaiterParameters<>(new DescribeTableRequest(Vendor.TABLE_NAME)));
-        System.out.println("table " + Vendor.TABLE_NAME + " is ACTIVE now");
-
-        DynamoDBMapperConfig dynamoDBMapperConfig = DynamoDBMapperConfig.builder()
-                .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.EVENTUAL) // maybe CONSISTENT? depends
-                .build();
-        mapper = new DynamoDBMapper(client, dynamoDBMapperConfig);
-    }
-
-    @AfterEach
-    public void afterEach() {
-        PaginatedScanList<Vendor> allVendors = mapper.scan(Vendor.class, new DynamoDBScanExpression());
-        allVendors.forEach(vendor -> mapper.delete(vendor));
-    }
-
-    @AfterAll
-    public static void afterAll() throws Exception {
-        client.deleteTable(Vendor.TABLE_NAME);
-        server.stop();
+    public static void beforeAll() {
+        client = dynamoDB.getClient();
+        mapper = dynamoDB.newMapper();
     }
 
     @Test
@@ -210,6 +162,397 @@ public class VendorTest {
         assertEquals(mostRecentVendor.getConfig(), vendor.getConfig());
     }
 
+    @Test
+    public void testCoalescedConcurrencyForOnePlatformVendor() throws Exception {
+
+        int numberOfMessages = 1000;
+
+        // distinct timestamps in random order, so there is exactly 1 most recent message
+        ArrayList<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < numberOfMessages; i++) {
+            offsets.add(2 * i - numberOfMessages);
+        }
+        Collections.shuffle(offsets, new Random(1234567890));
+
+        Instant now = Instant.now();
+        Vendor mostRecentVendor = null;
+        ArrayList<Vendor> vendors = new ArrayList<>();
+        for (int i = 0; i < numberOfMessages; i++) {
+            Instant ts = now.plusMillis(offsets.get(i));
+            Vendor vendor = new Vendor("asdf", "LH", "1234", ts, UUID.randomUUID().toString());
+            if (mostRecentVendor == null || vendor.getTs() > mostRecentVendor.getTs()) {
+                mostRecentVendor = vendor;
+            }
+            vendors.add(vendor);
+        }
+
+        VendorUpdateCoalescer coalescer = new VendorUpdateCoalescer(new VendorListenerLogic(client));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        CountDownLatch threadsFinished = new CountDownLatch(vendors.size());
+        vendors.forEach(v -> executorService.submit(() -> {
+            try {
+                coalescer.submit(Set.of(v), v.getRpsId(), v.getTimestamp());
+            } finally {
+                threadsFinished.countDown();
+            }
+        }));
+        threadsFinished.await();
+        executorService.shutdown();
+
+        System.out.println("coalescer: submitted=" + coalescer.getSubmitted() + ", applied=" + coalescer.getApplied()
+                + ", dropped=" + coalescer.getDropped());
+        assertEquals(numberOfMessages, coalescer.getApplied() + coalescer.getDropped());
+
+        Vendor vendor = mapper.load(Vendor.class, mostRecentVendor.getHashKey());
+        assertEquals(mostRecentVendor.getTs(), vendor.getTs());
+        assertEquals(mostRecentVendor.getConfig(), vendor.getConfig());
+    }
+
+    @Test
+    public void testDispatchedUpdatesForManyRpsVendors() throws Exception {
+
+        int numberOfRpsVendors = 8;
+        int messagesPerRpsVendor = 100;
+
+        Instant now = Instant.now();
+        Random random = new Random(1234567890);
+        Map<String, Instant> mostRecentPerRvid = new HashMap<>();
+        List<CompletableFuture<VendorWriteResult>> results = new ArrayList<>();
+
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client);
+        try (VendorUpdateDispatcher dispatcher = new VendorUpdateDispatcher(vendorListenerLogic, 4, 16)) {
+            for (int m = 0; m < messagesPerRpsVendor; m++) {
+                for (int r = 0; r < numberOfRpsVendors; r++) {
+                    String rVID = "rv" + r;
+                    Instant ts = now.plusMillis(random.nextInt(1000));
+                    Set<Vendor> vendors = Set.of(
+                            new Vendor("pv" + r + "a", "LH", rVID, ts, ts.toString()),
+                            new Vendor("pv" + r + "b", "LH", rVID, ts, ts.toString()));
+                    mostRecentPerRvid.merge(rVID, ts, (a, b) -> a.isAfter(b) ? a : b);
+                    results.add(dispatcher.dispatch(vendors, rVID, ts));
+                }
+            }
+        }
+
+        // the jittered timestamps arrive out of order: the older messages are skipped by the conditions
+        results.forEach(CompletableFuture::join);
+
+        mostRecentPerRvid.forEach((rVID, ts) -> {
+            String r = rVID.substring(2);
+            for (String suffix : List.of("a", "b")) {
+                Vendor vendor = mapper.load(Vendor.class, "pv" + r + suffix + "<<>>LH");
+                assertEquals(ts.toEpochMilli(), vendor.getTs());
+                assertEquals(rVID, vendor.getRpsId());
+            }
+        });
+    }
+
+    @Test
+    public void testBatchedUpdateOfManyPlatformVendors() {
+
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client,
+                new VendorListenerOptions().withWriteMode(VendorListenerOptions.WriteMode.BATCHED));
+
+        // more than 1 batch (25 items)
+        Instant first = Instant.now();
+        Set<Vendor> firstVendors = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            firstVendors.add(new Vendor("pv" + i, "LH", "1234", first, "config"));
+        }
+        VendorWriteResult firstResult = vendorListenerLogic.update(firstVendors, "1234", first);
+        assertEquals(40, firstResult.count(WriteOutcome.WRITTEN));
+
+        // pv0..pv9 removed, pv10..pv39 updated, pv40..pv49 added
+        Instant second = first.plusSeconds(1);
+        Set<Vendor> secondVendors = new HashSet<>();
+        for (int i = 10; i < 50; i++) {
+            secondVendors.add(new Vendor("pv" + i, "LH", "1234", second, "other config"));
+        }
+        VendorWriteResult secondResult = vendorListenerLogic.update(secondVendors, "1234", second);
+        assertEquals(50, secondResult.count(WriteOutcome.WRITTEN));
+
+        for (int i = 0; i < 50; i++) {
+            Vendor vendor = mapper.load(Vendor.class, "pv" + i + "<<>>LH");
+            assertEquals(second.toEpochMilli(), vendor.getTs());
+            assertEquals(String.valueOf(i < 10), vendor.isDeleted());
+        }
+
+        // outdated message is skipped without writing
+        Set<Vendor> outdatedVendors = Set.of(new Vendor("pv10", "LH", "1234", first, "outdated config"));
+        VendorWriteResult outdatedResult = vendorListenerLogic.update(outdatedVendors, "1234", first);
+        assertEquals(WriteOutcome.OUTDATED, outdatedResult.getOutcome("pv10<<>>LH"));
+        assertEquals("other config", mapper.load(Vendor.class, "pv10<<>>LH").getConfig());
+    }
+
+    @Test
+    public void testBatchedModeNeverOverwritesNewerVendors() {
+
+        // the cache stands in for a GSI read, which is behind the table
+        ExistingVendorCache staleReads = new ExistingVendorCache(100, Duration.ofMinutes(1));
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client, new VendorListenerOptions()
+                .withWriteMode(VendorListenerOptions.WriteMode.BATCHED)
+                .withExistingVendorCache(staleReads));
+
+        Instant ts1 = Instant.now();
+        Instant ts3 = ts1.plusSeconds(2);
+        Instant ts5 = ts1.plusSeconds(4);
+        mapper.save(new Vendor("a", "LH", "1234", ts5, "config 5"));
+        mapper.save(new Vendor("b", "LH", "5678", ts5, "config 5"));
+
+        // out of order: the stale read still shows ts1 for "a", the message with ts3 must not overwrite ts5
+        staleReads.put("1234", List.of(new Vendor("a", "LH", "1234", ts1, "config 1")));
+        VendorWriteResult result = vendorListenerLogic.update(
+                Set.of(new Vendor("a", "LH", "1234", ts3, "config 3")), "1234", ts3);
+        assertEquals(WriteOutcome.OUTDATED, result.getOutcome("a<<>>LH"));
+        assertEquals("config 5", mapper.load(Vendor.class, "a<<>>LH").getConfig());
+
+        // "b" moved to another rVID by a newer message: not deleted under its former rVID
+        staleReads.put("1234", List.of(new Vendor("b", "LH", "1234", ts1, "config 1")));
+        result = vendorListenerLogic.update(Set.of(), "1234", ts3);
+        assertEquals(WriteOutcome.OUTDATED, result.getOutcome("b<<>>LH"));
+        Vendor b = mapper.load(Vendor.class, "b<<>>LH");
+        assertEquals("5678", b.getRpsId());
+        assertEquals("false", b.isDeleted());
+
+        // new for the rVID, but existing for another one: not batched, the timestamp guard applies
+        result = vendorListenerLogic.update(Set.of(new Vendor("b", "LH", "9999", ts3, "config 3")), "9999", ts3);
+        assertEquals(WriteOutcome.OUTDATED, result.getOutcome("b<<>>LH"));
+        assertEquals("5678", mapper.load(Vendor.class, "b<<>>LH").getRpsId());
+
+        // inserted by a newer message after the stale read: the guarded insert fails, the rest of the TX is written
+        mapper.save(new Vendor("c", "LH", "1234", ts5, "config 5"));
+        staleReads.put("1234", List.of());
+        result = vendorListenerLogic.update(Set.of(
+                new Vendor("c", "LH", "1234", ts3, "config 3"),
+                new Vendor("d", "LH", "1234", ts3, "config 3")), "1234", ts3);
+        assertEquals(WriteOutcome.OUTDATED, result.getOutcome("c<<>>LH"));
+        assertEquals("config 5", mapper.load(Vendor.class, "c<<>>LH").getConfig());
+        assertEquals(WriteOutcome.WRITTEN, result.getOutcome("d<<>>LH"));
+        assertEquals("config 3", mapper.load(Vendor.class, "d<<>>LH").getConfig());
+    }
+
+    @Test
+    public void testParallelConditionalWrites() {
+
+        ExecutorService writePool = Executors.newFixedThreadPool(8);
+        AmazonDynamoDBAsync asyncClient = AmazonDynamoDBAsyncClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(dynamoDB.getEndpointConfiguration())
+                .build();
+        try {
+            VendorListenerLogic poolListenerLogic = new VendorListenerLogic(client, new VendorListenerOptions()
+                    .withConditionalWriteExecutor(new BoundedConditionalWriteExecutor(mapper, writePool, 8)));
+            VendorListenerLogic asyncListenerLogic = new VendorListenerLogic(client, new VendorListenerOptions()
+                    .withConditionalWriteExecutor(new AsyncConditionalWriteExecutor(asyncClient, mapper, 8)));
+
+            Instant now = Instant.now();
+            Set<Vendor> vendors = new HashSet<>();
+            for (int i = 0; i < 60; i++) {
+                vendors.add(new Vendor("pv" + i, "LH", "1234", now, "config"));
+            }
+            assertEquals(60, poolListenerLogic.update(vendors, "1234", now).count(WriteOutcome.WRITTEN));
+
+            // same platform vendors for another rps vendor, but outdated -> no add (for the other) and no delete
+            Instant past = now.minusSeconds(1);
+            Set<Vendor> outdatedVendors = new HashSet<>();
+            for (int i = 0; i < 60; i++) {
+                outdatedVendors.add(new Vendor("pv" + i, "LH", "5678", past, "outdated config"));
+            }
+            assertEquals(60, asyncListenerLogic.update(outdatedVendors, "5678", past).count(WriteOutcome.OUTDATED));
+
+            // newer -> the platform vendors move to the other rps vendor
+            Instant future = now.plusSeconds(1);
+            assertEquals(60, asyncListenerLogic.update(outdatedVendors, "5678", future).count(WriteOutcome.WRITTEN));
+            for (int i = 0; i < 60; i++) {
+                assertEquals("5678", mapper.load(Vendor.class, "pv" + i + "<<>>LH").getRpsId());
+            }
+        } finally {
+            writePool.shutdown();
+            asyncClient.shutdown();
+        }
+    }
+
+    @Test
+    public void testExistingVendorCache() {
+
+        ExistingVendorCache cache = new ExistingVendorCache(100, Duration.ofMinutes(1));
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client,
+                new VendorListenerOptions().withExistingVendorCache(cache));
+
+        Instant now = Instant.now();
+        vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", now, "config")), "1234", now);
+        assertEquals(0, cache.getHits());
+
+        // written through, no GSI read
+        Instant later = now.plusSeconds(1);
+        vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", later, "config"),
+                new Vendor("b", "LH", "1234", later, "config")), "1234", later);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.get("1234").size());
+
+        // "b" moves to another rps vendor -> entry of the former one invalidated
+        Instant evenLater = later.plusSeconds(1);
+        vendorListenerLogic.update(Set.of(new Vendor("b", "LH", "5678", evenLater, "config")), "5678", evenLater);
+        assertNull(cache.get("1234"));
+        assertEquals("5678", cache.get("5678").get(0).getRpsId());
+
+        // outdated -> invalidated
+        vendorListenerLogic.update(Set.of(new Vendor("b", "LH", "5678", now, "config")), "5678", now);
+        assertNull(cache.get("5678"));
+        assertEquals(evenLater.toEpochMilli(), mapper.load(Vendor.class, "b<<>>LH").getTs());
+    }
+
+    @Test
+    public void testChangeDetection() {
+
+        // the cache stands in for a GSI read, which is behind the table
+        ExistingVendorCache staleReads = new ExistingVendorCache(100, Duration.ofMinutes(1));
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client, new VendorListenerOptions()
+                .withChangeDetection(VendorListenerOptions.ChangeDetection.TOUCH_TIMESTAMP)
+                .withExistingVendorCache(staleReads));
+
+        Instant now = Instant.now();
+        vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", now, "config"),
+                new Vendor("b", "LH", "1234", now, "config")), "1234", now);
+
+        // "a" unchanged -> only ts moved forward, "b" changed
+        Instant later = now.plusSeconds(1);
+        VendorWriteResult result = vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", later, "config"),
+                new Vendor("b", "LH", "1234", later, "other config")), "1234", later);
+        assertEquals(WriteOutcome.WRITTEN, result.getOutcome("a<<>>LH"));
+        assertEquals(WriteOutcome.WRITTEN, result.getOutcome("b<<>>LH"));
+        Vendor a = mapper.load(Vendor.class, "a<<>>LH");
+        assertEquals(later.toEpochMilli(), a.getTs());
+        assertEquals("config", a.getConfig());
+        assertEquals(later.toEpochMilli(), mapper.load(Vendor.class, "b<<>>LH").getTs());
+
+        // outdated touch
+        result = vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", now, "config"),
+                new Vendor("b", "LH", "1234", now, "other config")), "1234", now);
+        assertEquals(WriteOutcome.OUTDATED, result.getOutcome("a<<>>LH"));
+        assertEquals(later.toEpochMilli(), mapper.load(Vendor.class, "a<<>>LH").getTs());
+
+        // "a" changed in table since the (stale) read: not touched, but written completely, if newer
+        Instant changed = later.plusSeconds(2);
+        mapper.save(new Vendor("a", "LH", "1234", changed, "changed config"));
+        Instant between = later.plusSeconds(1);
+        staleReads.put("1234", List.of(new Vendor("a", "LH", "1234", later, "config")));
+        result = vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", between, "config")), "1234", between);
+        assertEquals(WriteOutcome.OUTDATED, result.getOutcome("a<<>>LH"));
+        assertEquals("changed config", mapper.load(Vendor.class, "a<<>>LH").getConfig());
+        Instant newest = changed.plusSeconds(1);
+        staleReads.put("1234", List.of(new Vendor("a", "LH", "1234", later, "config")));
+        result = vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", newest, "config")), "1234", newest);
+        assertEquals(WriteOutcome.WRITTEN, result.getOutcome("a<<>>LH"));
+        a = mapper.load(Vendor.class, "a<<>>LH");
+        assertEquals(newest.toEpochMilli(), a.getTs());
+        assertEquals("config", a.getConfig());
+
+        // deleting twice: the second time the vendor is already deleted, only the ts is moved forward
+        Instant deleted = newest.plusSeconds(1);
+        vendorListenerLogic.update(Set.of(new Vendor("b", "LH", "1234", deleted, "other config")), "1234", deleted);
+        assertEquals("true", mapper.load(Vendor.class, "a<<>>LH").isDeleted());
+        Instant deletedAgain = deleted.plusSeconds(1);
+        result = vendorListenerLogic.update(Set.of(new Vendor("b", "LH", "1234", deletedAgain, "other config")),
+                "1234", deletedAgain);
+        assertEquals(WriteOutcome.WRITTEN, result.getOutcome("a<<>>LH"));
+        a = mapper.load(Vendor.class, "a<<>>LH");
+        assertEquals("true", a.isDeleted());
+        assertEquals(deletedAgain.toEpochMilli(), a.getTs());
+
+        assertNotEquals(Vendor.fingerprintOf("1234", false, null), Vendor.fingerprintOf("1234", false, ""));
+    }
+
+    @Test
+    public void testPartialUpdates() {
+
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(client,
+                new VendorListenerOptions().withPartialUpdates(true));
+
+        Instant now = Instant.now();
+        vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", now, "config"),
+                new Vendor("b", "LH", "1234", now, "config")), "1234", now);
+
+        // "a" changed, "b" deleted
+        Instant later = now.plusSeconds(1);
+        VendorWriteResult result = vendorListenerLogic.update(
+                Set.of(new Vendor("a", "LH", "1234", later, "other config")), "1234", later);
+        assertEquals(WriteOutcome.WRITTEN, result.getOutcome("a<<>>LH"));
+        assertEquals(WriteOutcome.WRITTEN, result.getOutcome("b<<>>LH"));
+
+        Vendor a = mapper.load(Vendor.class, "a<<>>LH");
+        assertEquals("other config", a.getConfig());
+        assertEquals(later.toEpochMilli(), a.getTs());
+        assertEquals(a.getFingerprint(), a.getStoredFingerprint());
+        Vendor b = mapper.load(Vendor.class, "b<<>>LH");
+        assertEquals("true", b.isDeleted());
+        assertEquals("config", b.getConfig());
+        assertEquals(b.getFingerprint(), b.getStoredFingerprint());
+
+        // outdated
+        result = vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", now, "outdated config")), "1234", now);
+        assertEquals(WriteOutcome.OUTDATED, result.getOutcome("a<<>>LH"));
+        assertEquals("other config", mapper.load(Vendor.class, "a<<>>LH").getConfig());
+
+        // "a" changed in table since the (stale) read: the config must be written, although unchanged to the read
+        ExistingVendorCache staleReads = new ExistingVendorCache(100, Duration.ofMinutes(1));
+        VendorListenerLogic staleListenerLogic = new VendorListenerLogic(client,
+                new VendorListenerOptions().withPartialUpdates(true).withExistingVendorCache(staleReads));
+        Instant changed = later.plusSeconds(1);
+        mapper.save(new Vendor("a", "LH", "1234", changed, "changed config"));
+        staleReads.put("1234", List.of(new Vendor("a", "LH", "1234", later, "other config")));
+        Instant newest = changed.plusSeconds(1);
+        result = staleListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", newest, "other config")), "1234", newest);
+        assertEquals(WriteOutcome.WRITTEN, result.getOutcome("a<<>>LH"));
+        a = mapper.load(Vendor.class, "a<<>>LH");
+        assertEquals("other config", a.getConfig());
+        assertEquals(newest.toEpochMilli(), a.getTs());
+    }
+
+    @Test
+    public void testOperationMetrics() {
+
+        OperationMetrics metrics = new OperationMetrics();
+        AmazonDynamoDB instrumentedClient = AmazonDynamoDBClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("foo", "bar")))
+                .withEndpointConfiguration(dynamoDB.getEndpointConfiguration())
+                .withRequestHandlers(metrics.requestHandler())
+                .build();
+        VendorListenerLogic vendorListenerLogic = new VendorListenerLogic(instrumentedClient,
+                new VendorListenerOptions().withMetrics(metrics));
+
+        Instant now = Instant.now();
+        vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", now, "config"),
+                new Vendor("b", "LH", "1234", now, "config")), "1234", now);
+
+        // outdated: "a" not updated, "b" not deleted
+        Instant earlier = now.minusSeconds(1);
+        vendorListenerLogic.update(Set.of(new Vendor("a", "LH", "1234", earlier, "old config")), "1234", earlier);
+
+        assertEquals(2, metrics.operation("vendor.update").getCalls());
+        assertEquals(3, metrics.operation("vendor.update").getItems());
+        assertEquals(2, metrics.operation("vendor.gsiQuery").getCalls());
+        assertEquals(2, metrics.operation("vendor.gsiQuery").getItems());
+        assertEquals(1, metrics.operation("vendor.save").getCalls());
+        assertEquals(0, metrics.operation("vendor.save").getErrors());
+        assertEquals(1, metrics.operation("vendor.save").getConditionalCheckFailures());
+        assertEquals(1, metrics.operation("vendor.conditionalSaves").getConditionalCheckFailures());
+
+        Map<String, Long> exported = new HashMap<>();
+        metrics.export((operation, latency) -> exported.put(operation.getName(), latency.getTotalCount()));
+        assertEquals(2, (long) exported.get("vendor.update"));
+        assertEquals(2, (long) exported.get("vendor.gsiQuery"));
+        assertEquals(1, (long) exported.get("vendor.save"));
+
+        // only the latencies since the last export
+        metrics.export((operation, latency) -> exported.put(operation.getName(), latency.getTotalCount()));
+        assertEquals(0, (long) exported.get("vendor.update"));
+        assertEquals(2, metrics.operation("vendor.update").getCalls());
+
+        instrumentedClient.shutdown();
+    }
+
     private static class VendorModification implements Runnable {
 
         private final Vendor vendor;
@@ -0,0 +1,138 @@
+package v_final;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+in front of `VendorListenerLogic.update`: while an update for a rVID is in flight, only the newest message for that rVID
+is kept, all older ones are dropped before they reach DynamoDB (only the newest timestamp can win anyway).
+
+the thread, which starts the update for a rVID, also applies the kept newer messages of the other threads, until there
+is none left. the other threads return immediately. so a thread returning does not mean, that its message has been
+applied yet. if applying a kept message fails, the exception is thrown to the applying thread, after all kept messages
+of the rVID have been handled.
+
+only coalesces within this node. messages for the same rVID on other nodes still race via the conditional writes.
+ */
+public class VendorUpdateCoalescer {
+
+    private final VendorListenerLogic vendorListenerLogic;
+    private final ConcurrentMap<String, InFlight> inFlightByRvid = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public VendorUpdateCoalescer(VendorListenerLogic vendorListenerLogic) {
+        this.vendorListenerLogic = vendorListenerLogic;
+    }
+
+    public void submit(Set<Vendor> latestVendorsForRvid, String rVID, Instant eventTimeStamp) {
+
+        submitted.increment();
+        Message message = new Message(latestVendorsForRvid, eventTimeStamp);
+        boolean[] apply = new boolean[1];
+
+        inFlightByRvid.compute(rVID, (key, inFlight) -> {
+            if (inFlight == null) {
+                apply[0] = true;
+                return new InFlight(message);
+            }
+            if (message.isNewerThan(inFlight.newest())) {
+                if (inFlight.pending != null) {
+                    // superseded before it has been applied
+                    dropped.increment();
+                }
+                inFlight.pending = message;
+            } else {
+                dropped.increment();
+            }
+            return inFlight;
+        });
+
+        if (apply[0]) {
+            applyAll(rVID, message);
+        }
+    }
+
+    private void applyAll(String rVID, Message first) {
+
+        RuntimeException failure = null;
+        Message next = first;
+
+        while (next != null) {
+            try {
+                vendorListenerLogic.update(next.vendors, rVID, next.eventTimeStamp);
+                applied.increment();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+
+            Message[] pending = new Message[1];
+            inFlightByRvid.computeIfPresent(rVID, (key, inFlight) -> {
+                if (inFlight.pending == null) {
+                    // nothing newer arrived, done for this rVID
+                    return null;
+                }
+                pending[0] = inFlight.pending;
+                inFlight.current = inFlight.pending;
+                inFlight.pending = null;
+                return inFlight;
+            });
+            next = pending[0];
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private static class Message {
+
+        private final Set<Vendor> vendors;
+        private final Instant eventTimeStamp;
+
+        Message(Set<Vendor> vendors, Instant eventTimeStamp) {
+            this.vendors = vendors;
+            this.eventTimeStamp = eventTimeStamp;
+        }
+
+        boolean isNewerThan(Message other) {
+            return eventTimeStamp.isAfter(other.eventTimeStamp);
+        }
+    }
+
+    // guarded by the map (only modified within compute)
+    private static class InFlight {
+
+        private Message current;
+        private Message pending;
+
+        InFlight(Message current) {
+            this.current = current;
+        }
+
+        Message newest() {
+            return pending != null ? pending : current;
+        }
+    }
+}
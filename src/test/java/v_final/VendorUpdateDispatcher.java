@@ -0,0 +1,118 @@
+package v_final;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+runs the vendor updates on N single threaded lanes, the lane is chosen by the hash of the rVID. so the updates for one
+rVID are applied one after the other in this node (no lost conditional writes between them), while different rVIDs
+are applied in parallel.
+
+a platform vendor moving from one rVID to another is written by the lanes of both rVIDs, and other nodes write
+concurrently anyway, so the conditional writes are still needed. but a failing condition becomes the rare case.
+the lanes keep the arrival order, not the timestamp order, so outdated messages are still skipped by the conditions
+only.
+
+each lane queues at most `laneCapacity` updates, further dispatches block the calling thread.
+ */
+public class VendorUpdateDispatcher implements AutoCloseable {
+
+    private final VendorListenerLogic vendorListenerLogic;
+    private final ThreadPoolExecutor[] lanes;
+
+    public VendorUpdateDispatcher(VendorListenerLogic vendorListenerLogic, int numberOfLanes, int laneCapacity) {
+        this.vendorListenerLogic = vendorListenerLogic;
+        this.lanes = new ThreadPoolExecutor[numberOfLanes];
+        for (int i = 0; i < numberOfLanes; i++) {
+            String threadName = "vendor-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(laneCapacity),
+                    runnable -> new Thread(runnable, threadName),
+                    (runnable, executor) -> {
+                        // block instead of running on the caller thread, which would break the order per rVID
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("dispatcher closed");
+                        }
+                        try {
+                            executor.getQueue().put(runnable);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
+                    });
+        }
+    }
+
+    public CompletableFuture<VendorWriteResult> dispatch(Set<Vendor> latestVendorsForRvid, String rVID,
+                                                         Instant eventTimeStamp) {
+        Update update = new Update(() -> vendorListenerLogic.update(latestVendorsForRvid, rVID, eventTimeStamp));
+        laneOf(rVID).execute(update);
+        return update.future;
+    }
+
+    private ThreadPoolExecutor laneOf(String rVID) {
+        return lanes[Math.floorMod(rVID.hashCode(), lanes.length)];
+    }
+
+    /*
+    waits until all dispatched updates have been applied. if a lane takes longer than a minute (or the calling thread is
+    interrupted), the updates still queued are dropped and the running ones interrupted: an IllegalStateException tells,
+    that not all of them have been applied (the interrupt flag is set again).
+     */
+    @Override
+    public void close() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                if (!lane.awaitTermination(1, TimeUnit.MINUTES)) {
+                    int dropped = shutdownNow();
+                    throw new IllegalStateException("vendor lanes not terminated, " + dropped + " queued updates dropped");
+                }
+            }
+        } catch (InterruptedException e) {
+            int dropped = shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while closing, " + dropped + " queued updates dropped", e);
+        }
+    }
+
+    // the futures of the queued updates are completed exceptionally. returns their number
+    private int shutdownNow() {
+        int dropped = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            for (Runnable update : lane.shutdownNow()) {
+                ((Update) update).future.completeExceptionally(new RejectedExecutionException("dispatcher closed"));
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    // not CompletableFuture.supplyAsync, so the future of a queued update is at hand, when it is dropped
+    private static class Update implements Runnable {
+
+        private final Supplier<VendorWriteResult> supplier;
+        private final CompletableFuture<VendorWriteResult> future = new CompletableFuture<>();
+
+        Update(Supplier<VendorWriteResult> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(supplier.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package v_final;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// per vendor (by hash key) outcome of a vendor relation update. filled concurrently, if writes are done in parallel.
+public class VendorWriteResult {
+
+    private final Map<String, WriteOutcome> outcomes = new ConcurrentHashMap<>();
+
+    public void put(String hashKey, WriteOutcome outcome) {
+        outcomes.put(hashKey, outcome);
+    }
+
+    public WriteOutcome getOutcome(String hashKey) {
+        return outcomes.get(hashKey);
+    }
+
+    public Map<String, WriteOutcome> getOutcomes() {
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+    public long count(WriteOutcome outcome) {
+        return outcomes.values().stream().filter(o -> o == outcome).count();
+    }
+
+    @Override
+    public String toString() {
+        return "VendorWriteResult{" +
+                "outcomes=" + outcomes +
+                '}';
+    }
+}
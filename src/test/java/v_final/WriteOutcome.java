@@ -0,0 +1,11 @@
+package v_final;
+
+// outcome of the write of a single vendor item
+public enum WriteOutcome {
+
+    // item has been written
+    WRITTEN,
+
+    // queue message outdated (condition failed or already known to be older than the item in table), nothing written
+    OUTDATED
+}